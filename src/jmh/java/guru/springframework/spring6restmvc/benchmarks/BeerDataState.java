@@ -0,0 +1,76 @@
+package guru.springframework.spring6restmvc.benchmarks;
+
+import guru.springframework.spring6restmvc.Spring6RestMvcApplication;
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Boots the application once per trial against an in-memory H2 database and tops the bootstrap
+ * data up with generated beers until the beer table holds datasetSize rows.
+ */
+@State(Scope.Benchmark)
+public class BeerDataState {
+
+    private static final String[] WORDS = {"Hazy", "Galaxy", "Double", "Imperial", "Session", "Cat", "River",
+            "Golden", "Dark", "IPA", "Pale", "Stout", "Porter", "Sour", "Wheat", "Red", "Hop", "Barrel", "Night", "Sun"};
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    public ConfigurableApplicationContext context;
+    public List<UUID> beerIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Spring6RestMvcApplication.class)
+                .properties("server.port=0", //SpringSecurityConfig needs the servlet stack, so a web server on a random port
+                        "logging.level.guru.springframework=info",
+                        "logging.level.org.springframework.security=warn",
+                        "logging.level.guru.springframework.spring6restmvc.config.RefreshingJwkSource=error", //no JWKS server here
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+                .run();
+
+        BeerRepository beerRepository = context.getBean(BeerRepository.class);
+        Random random = new Random(42);
+        BeerStyle[] styles = BeerStyle.values();
+
+        long missing = datasetSize - beerRepository.count();
+        List<Beer> chunk = new ArrayList<>();
+
+        for (long i = 0; i < missing; i++) {
+            chunk.add(Beer.builder()
+                    .beerName(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i)
+                    .beerStyle(styles[random.nextInt(styles.length)])
+                    .upc(Long.toString(100000 + i))
+                    .price(BigDecimal.valueOf(5 + random.nextInt(20)))
+                    .quantityOnHand(random.nextInt(500))
+                    .build());
+
+            if (chunk.size() == 1000 || i == missing - 1) {
+                beerRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+
+        beerIds = beerRepository.findAll().stream().map(Beer::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
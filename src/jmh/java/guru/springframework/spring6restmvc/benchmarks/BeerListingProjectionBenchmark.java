@@ -0,0 +1,62 @@
+package guru.springframework.spring6restmvc.benchmarks;
+
+import guru.springframework.spring6restmvc.mappers.BeerMapper;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of the beer listing, loaded the old way (managed Beer entities mapped with BeerMapper) and
+ * through the BeerDTO constructor projection the service uses now. Run with the gc profiler to get
+ * the allocation per page next to the latency:
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="BeerListingProjectionBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerListingProjectionBenchmark {
+
+    @Param({"25", "250"})
+    public int pageSize;
+
+    BeerRepository beerRepository;
+    BeerMapper beerMapper;
+    PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp(BeerDataState data) {
+        beerRepository = data.getBean(BeerRepository.class);
+        beerMapper = data.getBean(BeerMapper.class);
+        pageRequest = PageRequest.of(1, pageSize, Sort.by("beerName"));
+    }
+
+    @Benchmark
+    public Page<BeerDTO> entitiesAll() {
+        return beerRepository.findAll(pageRequest).map(beerMapper::beerToBeerDto);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> projectionAll() {
+        return beerRepository.findAllDtos(pageRequest);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> entitiesByStyle() {
+        return beerRepository.findAllByBeerStyle(BeerStyle.IPA, pageRequest).map(beerMapper::beerToBeerDto);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> projectionByStyle() {
+        return beerRepository.findAllDtosByBeerStyle(BeerStyle.IPA, pageRequest);
+    }
+}
@@ -0,0 +1,56 @@
+package guru.springframework.spring6restmvc.benchmarks;
+
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.services.BeerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//One benchmark per listing branch of BeerServiceJPA.listBeers, plus the cached getBeerById
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerServiceBenchmark {
+
+    @Param({"25"})
+    public int pageSize;
+
+    BeerService beerService;
+
+    @Setup(Level.Trial)
+    public void setUp(BeerDataState data) {
+        beerService = data.getBean(BeerService.class);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> listByName() {
+        return beerService.listBeers("IPA", null, true, 1, pageSize);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> listByStyle() {
+        return beerService.listBeers(null, BeerStyle.IPA, true, 1, pageSize);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> listByNameAndStyle() {
+        return beerService.listBeers("IPA", BeerStyle.IPA, true, 1, pageSize);
+    }
+
+    @Benchmark
+    public Page<BeerDTO> listAll() {
+        return beerService.listBeers(null, null, true, 1, pageSize);
+    }
+
+    @Benchmark
+    public Optional<BeerDTO> getBeerById(BeerDataState data) {
+        return beerService.getBeerById(data.beerIds.get(ThreadLocalRandom.current().nextInt(data.beerIds.size())));
+    }
+}
@@ -0,0 +1,42 @@
+package guru.springframework.spring6restmvc.benchmarks;
+
+import guru.springframework.spring6restmvc.services.StripedStock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservations against one hot beer from many threads. stripes=1 is a single CAS'd counter, the contended
+ * baseline the inventory ledger's striping is meant to beat. Raise the thread count with -t
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class StripedStockBenchmark {
+
+    @Param({"1", "16"})
+    public int stripes;
+
+    StripedStock stock;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        stock = new StripedStock(stripes, Long.MAX_VALUE / 2); //never sells out
+    }
+
+    @Benchmark
+    public boolean reserve() {
+        return stock.tryReserve(1);
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        boolean reserved = stock.tryReserve(2);
+        stock.add(2);
+        return reserved;
+    }
+}
@@ -0,0 +1,106 @@
+package guru.springframework.spring6restmvc.benchmarks;
+
+import guru.springframework.spring6restmvc.entities.TimeOrderedUuidGenerator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched inserts into a table keyed the way the entities are: a UUID primary key plus a UUID foreign key column
+ * with its own index. Random (v4) against time-ordered (v7) ids, stored as varchar(36) and as BINARY(16), on an
+ * H2 file database. The size of the table and its indexes after the run is printed at the end of each trial.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UuidKeyInsertBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidKeyInsertBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"random", "ordered"})
+    public String keys;
+
+    @Param({"varchar", "binary"})
+    public String storage;
+
+    Connection connection;
+    PreparedStatement insert;
+    UUID parent;
+    long rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:file:./target/uuid-benchmark/" + keys + "-" + storage);
+        connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+
+        String type = storage.equals("binary") ? "binary(16)" : "varchar(36)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists item");
+            statement.execute("create table item (id " + type + " primary key, parent_id " + type
+                    + ", name varchar(50))");
+            statement.execute("create index item_parent_idx on item (parent_id)");
+        }
+        connection.commit();
+        insert = connection.prepareStatement("insert into item (id, parent_id, name) values (?, ?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet size = statement.executeQuery("call disk_space_used('ITEM')")) {
+            size.next();
+            System.out.println();
+            System.out.println(keys + "/" + storage + ": " + rows + " rows, table and indexes "
+                    + size.getLong(1) / 1024 + " KB, " + size.getLong(1) / Math.max(rows, 1) + " bytes/row");
+        }
+        connection.close();
+    }
+
+    UUID nextId() {
+        return keys.equals("ordered") ? TimeOrderedUuidGenerator.next() : UUID.randomUUID();
+    }
+
+    void setId(int index, UUID id) throws SQLException {
+        if (storage.equals("binary")) {
+            insert.setBytes(index, ByteBuffer.allocate(16)
+                    .putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits())
+                    .array());
+        } else {
+            insert.setString(index, id.toString());
+        }
+    }
+
+    //One batch of rows per call, a new parent every 10 rows like order lines under an order
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            if (i % 10 == 0) {
+                parent = nextId();
+            }
+            setId(1, nextId());
+            setId(2, parent);
+            insert.setString(3, "row " + i);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+        rows += BATCH;
+    }
+}
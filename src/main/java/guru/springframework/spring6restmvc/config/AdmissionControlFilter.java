@@ -0,0 +1,143 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+/**
+ * Caps the number of requests working at the same time, so they can't all queue up on the Hikari pool.
+ * This matters most with virtual threads, where thousands of requests can be in flight at once. A request
+ * that can't get a permit within the timeout gets a 503 with Retry-After. It doesn't wait for a connection.
+ *
+ * Each request takes as many permits as the permitsPerRequest function says, roughly the connections it uses at
+ * once (capped at the limit). A request it gives 0 permits isn't limited by this filter. An async request, like a
+ * streamed export, keeps its permits until the async processing is complete.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final ToIntFunction<HttpServletRequest> permitsPerRequest;
+    private final long timeoutMillis;
+    private final Counter rejected;
+
+    public AdmissionControlFilter(int maxConcurrent, Duration timeout, MeterRegistry meterRegistry) {
+        this("requests", maxConcurrent, timeout, request -> 1, meterRegistry);
+    }
+
+    //limit tags the metrics, so several filters can report side by side
+    public AdmissionControlFilter(String limit, int maxConcurrent, Duration timeout,
+                                  ToIntFunction<HttpServletRequest> permitsPerRequest, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.permitsPerRequest = permitsPerRequest;
+        this.timeoutMillis = timeout.toMillis();
+
+        Gauge.builder("http.admission.in_flight", () -> this.maxConcurrent - permits.availablePermits())
+                .tag("limit", limit)
+                .description("Admission permits held")
+                .register(meterRegistry);
+        Gauge.builder("http.admission.waiting", permits::getQueueLength)
+                .tag("limit", limit)
+                .description("Requests waiting for an admission permit")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("http.admission.rejected")
+                .tag("limit", limit)
+                .description("Requests turned away with a 503 because no permit became free in time")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return permitsPerRequest.applyAsInt(request) <= 0;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        int requested = Math.min(permitsPerRequest.applyAsInt(request), maxConcurrent);
+
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(requested, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+
+        if (!admitted) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(requested));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release(requested);
+            }
+        }
+    }
+
+    //A timeout or an error is followed by onComplete, the permits are released only once
+    private class ReleaseOnCompletion implements AsyncListener {
+
+        private final int held;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnCompletion(int held) {
+            this.held = held;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release(held);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this); //listeners are dropped when the request starts async again
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package guru.springframework.spring6restmvc.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.springframework.spring6restmvc.services.CatalogGeneration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shared cache of the serialized beer listing (GET /api/v1/beer): the response bytes, keyed by the sorted query
+ * parameters and the {@link CatalogGeneration}. A hit is written out as is, without a query, a mapping or JSON
+ * serialization. Any beer write bumps the generation, after which the old entries are never asked for again and
+ * age out of the size bound. The listing is the same for every caller, the filter runs after authentication.
+ *
+ * With gzip, bodies of a kilobyte or more are also kept gzipped and sent that way to clients that accept it.
+ * Every response says whether it was a hit in a Server-Timing entry, cache.gets{cache=beer.listing} counts them.
+ */
+public class BeerListingCacheFilter extends OncePerRequestFilter {
+
+    public static final String CACHE_NAME = "beer.listing";
+
+    private static final int MIN_GZIP_SIZE = 1024;
+
+    private final CatalogGeneration catalogGeneration;
+    private final boolean gzip;
+    private final Cache<Key, Entry> cache;
+
+    record Key(long generation, String query) {}
+
+    record Entry(String contentType, byte[] body, byte[] gzipped) {
+        int weight() {
+            return body.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+
+    public BeerListingCacheFilter(CatalogGeneration catalogGeneration, DataSize maxSize, Duration ttl, boolean gzip,
+                                  MeterRegistry meterRegistry) {
+        this.catalogGeneration = catalogGeneration;
+        this.gzip = gzip;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Entry entry) -> key.query().length() + entry.weight())
+                .expireAfterWrite(ttl) //writes on another instance or straight to the database don't bump the generation
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    //The listing only produces JSON, anything else is left to the controller (and its 406)
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) || !acceptsJson(request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Key key = new Key(catalogGeneration.current(), query(request.getParameterMap())); //before the listing is loaded
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            write(request, response, cached, "hit");
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        //Errors and bad parameters go out as they are
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || wrapper.getContentType() == null) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        Entry entry = entry(wrapper.getContentType(), wrapper.getContentAsByteArray());
+        cache.put(key, entry);
+        write(request, response, entry, "miss");
+    }
+
+    //pageSize=10&beerStyle=IPA and beerStyle=IPA&pageSize=10 are the same listing
+    static String query(Map<String, String[]> parameters) {
+        return new TreeMap<>(parameters).entrySet().stream()
+                .flatMap(parameter -> Arrays.stream(parameter.getValue())
+                        .map(value -> encode(parameter.getKey()) + "=" + encode(value)))
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private Entry entry(String contentType, byte[] body) {
+        if (!gzip || body.length < MIN_GZIP_SIZE) {
+            return new Entry(contentType, body, null);
+        }
+        byte[] gzipped = gzip(body);
+        return new Entry(contentType, body, gzipped.length < body.length ? gzipped : null);
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, Entry entry, String cacheStatus)
+            throws IOException {
+        response.addHeader(SqlTimingFilter.SERVER_TIMING, "cache;desc=\"" + cacheStatus + "\"");
+        if (gzip) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.contentType());
+
+        byte[] body = entry.body();
+        if (entry.gzipped() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = entry.gzipped();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    static boolean acceptsJson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(type -> type.includes(MediaType.APPLICATION_JSON));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    //"gzip, deflate, br" or "gzip;q=0.8", but not "gzip;q=0"
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.replace(" ", "").toLowerCase(Locale.ROOT))
+                .anyMatch(coding -> coding.equals("gzip")
+                        || coding.startsWith("gzip;") && !coding.matches("gzip;q=0(\\.0*)?"));
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,53 @@
+package guru.springframework.spring6restmvc.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import guru.springframework.spring6restmvc.controller.BeerController;
+import guru.springframework.spring6restmvc.services.CatalogGeneration;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+//Turns on Spring Boot's cache auto-configuration, the Caffeine caches are set up in application.properties
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+    public static final String BEER_CACHE = "beer";
+
+    //The Hibernate second-level cache gets a JCache manager of its own. Hibernate closes the manager with the session
+    //factory, the provider's default one would be closed under every other context still using it (as in the tests)
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheManager() {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER,
+                Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                        .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), CacheConfig.class.getClassLoader()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "beer.listing-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<BeerListingCacheFilter> beerListingCacheFilter(
+            CatalogGeneration catalogGeneration, MeterRegistry meterRegistry,
+            @Value("${beer.listing-cache.max-size:32MB}") DataSize maxSize,
+            @Value("${beer.listing-cache.ttl:10m}") Duration ttl,
+            @Value("${beer.listing-cache.gzip:true}") boolean gzip) {
+
+        FilterRegistrationBean<BeerListingCacheFilter> registration = new FilterRegistrationBean<>(
+                new BeerListingCacheFilter(catalogGeneration, maxSize, ttl, gzip, meterRegistry));
+        registration.addUrlPatterns(BeerController.BEER_PATH);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 3); //inside the SQL timing filter, a hit shows 0 statements
+        return registration;
+    }
+}
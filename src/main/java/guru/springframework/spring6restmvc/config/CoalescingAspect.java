@@ -0,0 +1,123 @@
+package guru.springframework.spring6restmvc.config;
+
+import guru.springframework.spring6restmvc.services.Coalesced;
+import guru.springframework.spring6restmvc.services.WriteGeneration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Single flight for {@link Coalesced} reads. The first call for a method and arguments registers a CompletableFuture
+ * and runs the read, calls with the same key that arrive before it finishes join that future. A burst of identical
+ * requests (the first page of the listing, a hot customer) then costs one load.
+ *
+ * The key holds the {@link WriteGeneration} of the data as well: once a write commits, new calls start a new load
+ * instead of joining one that may have read the data before the write. A caller waits at most wait-timeout for
+ * the load it joined, then runs the read itself: service.reads{result=timed_out} counts those among the collapsed.
+ *
+ * Runs outside the @Transactional and @Timed advice, so beer.service / customer.service time the loads and
+ * service.reads{result=collapsed} counts the calls that joined one. A call made inside a transaction runs on
+ * its own: it may see uncommitted writes of its caller, which must not be handed to anyone else.
+ */
+@Aspect
+public class CoalescingAspect implements Ordered {
+
+    static final String METRIC = "service.reads";
+
+    private final Function<Class<? extends WriteGeneration>, WriteGeneration> generations;
+    private final long waitTimeoutMillis;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Method, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<Class<? extends WriteGeneration>, WriteGeneration> resolvedGenerations = new ConcurrentHashMap<>();
+
+    record Key(Method method, long generation, List<Object> args) {}
+
+    private record Counters(Counter loaded, Counter collapsed, Counter timedOut) {}
+
+    //generations finds the WriteGeneration bean of a @Coalesced read, it is looked up once per type
+    public CoalescingAspect(Function<Class<? extends WriteGeneration>, WriteGeneration> generations,
+                            Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.generations = generations;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(METRIC + ".in_flight", inFlight, Map::size)
+                .description("Coalesced reads currently loading")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, Coalesced coalesced) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        WriteGeneration generation = resolvedGenerations.computeIfAbsent(coalesced.value(), generations);
+        Key key = new Key(method, generation.current(), Arrays.asList(joinPoint.getArgs()));
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            counters(method).collapsed().increment();
+            try {
+                return leader.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                //A stuck load doesn't hold up everyone behind it
+                counters(method).timedOut().increment();
+                return joinPoint.proceed();
+            }
+        }
+
+        counters(method).loaded().increment();
+        try {
+            Object result = joinPoint.proceed();
+            flight.complete(result);
+            return result;
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Counters counters(Method method) {
+        return counters.computeIfAbsent(method, m -> new Counters(counter(m, "loaded"), counter(m, "collapsed"),
+                counter(m, "timed_out")));
+    }
+
+    private Counter counter(Method method, String result) {
+        return Counter.builder(METRIC)
+                .description("Coalesced reads by whether they ran the load, joined one in flight or gave up waiting")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    //Outside the transaction interceptor and TimedAspect, which both run at the lowest precedence
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
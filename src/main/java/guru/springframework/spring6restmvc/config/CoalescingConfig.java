@@ -0,0 +1,22 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+//Single flight for the @Coalesced reads of the beer and customer services, on unless service.coalescing.enabled=false
+@Configuration
+@ConditionalOnProperty(name = "service.coalescing.enabled", havingValue = "true", matchIfMissing = true)
+public class CoalescingConfig {
+
+    @Bean
+    public CoalescingAspect coalescingAspect(BeanFactory beanFactory, MeterRegistry meterRegistry,
+                                             @Value("${service.coalescing.wait-timeout:2s}") Duration waitTimeout) {
+        return new CoalescingAspect(beanFactory::getBean, waitTimeout, meterRegistry);
+    }
+}
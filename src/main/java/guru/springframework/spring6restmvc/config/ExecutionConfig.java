@@ -0,0 +1,128 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import guru.springframework.spring6restmvc.controller.BeerController;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Request execution mode. Set request.execution.mode=virtual to serve requests on virtual threads instead of
+ * Tomcat's platform thread pool. The admission filters are always installed, so in either mode at most
+ * request.admission.max-concurrent requests work at the same time.
+ *
+ * Bulk writes, CSV imports and exports have a limit of their own (request.admission.transfers.*): they run for as
+ * long as the upload or download takes, and would otherwise hold request permits the whole time. A parallel import
+ * takes one transfer permit per import worker, every worker writes on its own connection.
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+
+    static final Set<String> TRANSFER_PATHS = Set.of(BeerController.BEER_BULK_PATH, BeerController.BEER_IMPORT_PATH,
+            BeerController.BEER_EXPORT_PATH);
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            @Value("${request.admission.max-concurrent:50}") int maxConcurrent,
+            @Value("${request.admission.timeout:2s}") Duration timeout,
+            MeterRegistry meterRegistry) {
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter("requests", maxConcurrent, timeout,
+                        request -> TRANSFER_PATHS.contains(path(request)) ? 0 : 1, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1); //unauthenticated requests never take a permit
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> transferAdmissionControlFilter(
+            @Value("${request.admission.transfers.max-concurrent:4}") int maxConcurrent,
+            @Value("${request.admission.transfers.timeout:2s}") Duration timeout,
+            @Value("${beer.import.parallelism:4}") int importParallelism,
+            MeterRegistry meterRegistry) {
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter("transfers", maxConcurrent, timeout,
+                        request -> parallelImport(request) ? importParallelism : 1, meterRegistry));
+        registration.setUrlPatterns(TRANSFER_PATHS);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean parallelImport(HttpServletRequest request) {
+        return path(request).equals(BeerController.BEER_IMPORT_PATH) && Boolean.parseBoolean(request.getParameter("parallel"));
+    }
+
+    //Virtual threads need Java 21, the build targets 17, so the executor is looked up reflectively. On an older
+    //runtime the mode falls back to the platform pool with a warning. The executor is shut down with the context,
+    //after Tomcat has stopped
+    @Bean
+    @ConditionalOnProperty(name = "request.execution.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(MeterRegistry meterRegistry) {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+
+        if (virtualThreads == null) {
+            log.warn("request.execution.mode=virtual needs Java 21 or later, running on " + Runtime.version()
+                    + ". Keeping the platform thread pool");
+            return protocolHandler -> {};
+        }
+
+        //Virtual threads don't show up in the Tomcat pool metrics, count the requests they are running instead
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("http.server.virtual.threads.active", active::get)
+                .description("Requests currently running on virtual threads")
+                .register(meterRegistry);
+
+        return new VirtualThreadExecutorCustomizer(virtualThreads, active);
+    }
+
+    private record VirtualThreadExecutorCustomizer(ExecutorService virtualThreads, AtomicInteger active)
+            implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+        @Override
+        public void customize(ProtocolHandler protocolHandler) {
+            protocolHandler.setExecutor(task -> virtualThreads.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }));
+        }
+
+        @Override
+        public void destroy() {
+            virtualThreads.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
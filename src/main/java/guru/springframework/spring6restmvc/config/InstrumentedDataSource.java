@@ -0,0 +1,130 @@
+package guru.springframework.spring6restmvc.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wraps the pool's connections and statements in JDK proxies that time every execute* call and report it to
+ * {@link SqlInstrumentation}. Everything else is passed straight through. Being a DelegatingDataSource, the Hikari
+ * pool behind it is still found by the hikaricp.* metrics.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final SqlInstrumentation instrumentation;
+
+    public InstrumentedDataSource(DataSource targetDataSource, SqlInstrumentation instrumentation) {
+        super(targetDataSource);
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+
+            Object result = InstrumentedDataSource.invoke(connection, method, args);
+
+            //prepareStatement(sql, ...), prepareCall(sql, ...), createStatement(...)
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return proxy(method.getReturnType(), new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        //Only filled while the instrumentation is capturing
+        private Map<Integer, Object> parameters;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (!method.getName().startsWith("execute")) {
+                if (instrumentation.capturing()) {
+                    recordParameter(method, args);
+                }
+                return InstrumentedDataSource.invoke(statement, method, args);
+            }
+
+            long started = System.nanoTime();
+            try {
+                return InstrumentedDataSource.invoke(statement, method, args);
+            } finally {
+                //Statement.execute(sql) carries its own SQL, a plain Statement's executeBatch has none to show
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                instrumentation.executed(sql == null ? "batch" : sql, System.nanoTime() - started,
+                        parameters == null ? Map.of() : parameters);
+            }
+        }
+
+        //setString(1, "x"), setObject(2, id), setNull(3, Types.VARCHAR) ...
+        private void recordParameter(Method method, Object[] args) {
+            if (method.getName().equals("clearParameters") && parameters != null) {
+                parameters.clear();
+            } else if (method.getName().startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer index) {
+                if (parameters == null) {
+                    parameters = new HashMap<>();
+                }
+                parameters.put(index, method.getName().equals("setNull") ? null : args[1]);
+            }
+        }
+    }
+}
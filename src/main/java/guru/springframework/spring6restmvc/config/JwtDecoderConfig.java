@@ -0,0 +1,61 @@
+package guru.springframework.spring6restmvc.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Replaces Boot's issuer-uri decoder, which runs OIDC discovery on the first request and fetches keys lazily.
+ * Keys come straight from the configured jwk-set-uri (or from {@link LocalJwks} with the localauth profile)
+ * through a pre-warmed, background refreshed {@link RefreshingJwkSource}, and verified tokens are cached.
+ */
+@Configuration
+public class JwtDecoderConfig {
+
+    @Bean
+    public RefreshingJwkSource jwkSource(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                         @Value("${security.jwt.jwks-refresh-interval:5m}") Duration refreshInterval,
+                                         ObjectProvider<LocalJwks> localJwks) {
+
+        LocalJwks local = localJwks.getIfAvailable();
+        Callable<JWKSet> loader = local != null
+                ? local::jwkSet
+                : () -> JWKSet.load(new URL(jwkSetUri), 2000, 2000, 50 * 1024);
+
+        return new RefreshingJwkSource(loader, refreshInterval, Duration.ofSeconds(30));
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(RefreshingJwkSource jwkSource,
+                                 @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                                 @Value("${security.jwt.cache.maximum-size:10000}") long maximumSize,
+                                 MeterRegistry meterRegistry) {
+
+        return new CachingJwtDecoder(nimbusJwtDecoder(jwkSource, issuerUri), maximumSize, meterRegistry);
+    }
+
+    //Signature check against the JWK source, then Spring's default validators (exp/nbf with clock skew, issuer)
+    static NimbusJwtDecoder nimbusJwtDecoder(RefreshingJwkSource jwkSource, String issuerUri) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {}); //the Spring validators below check the claims
+
+        NimbusJwtDecoder nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        nimbusJwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return nimbusJwtDecoder;
+    }
+}
@@ -0,0 +1,71 @@
+package guru.springframework.spring6restmvc.config;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * In-process stand-in for the authorization server, active with the localauth profile: an RSA key that the
+ * JwtDecoder trusts, served at /oauth2/jwks, and a way to mint tokens signed with it. Lets the resource server
+ * run and be tested without the auth server on localhost:9000. Never enable it outside local development.
+ */
+@Component
+@Profile("localauth")
+public class LocalJwks {
+
+    private final String issuer;
+    private volatile RSAKey rsaKey;
+
+    public LocalJwks(@Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuer) {
+        this.issuer = issuer;
+        rotate();
+    }
+
+    public JWKSet jwkSet() {
+        return new JWKSet(rsaKey.toPublicJWK());
+    }
+
+    //Replaces the signing key, tokens signed with the old key stop validating once the JWK set is refreshed
+    public void rotate() {
+        try {
+            rsaKey = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String mint(String subject, String scope, Duration ttl) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(subject)
+                .claim("scope", scope)
+                .issueTime(Date.from(now))
+                .notBeforeTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(ttl)))
+                .build();
+
+        RSAKey signingKey = rsaKey;
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+        try {
+            jwt.sign(new RSASSASigner(signingKey));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+}
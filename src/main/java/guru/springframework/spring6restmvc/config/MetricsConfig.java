@@ -0,0 +1,20 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Makes @Timed work on Spring beans, the service classes are timed as beer.service / customer.service with a
+ * method tag. Endpoint, pool and JVM metrics come from the actuator, histograms are switched on in
+ * application.properties (management.metrics.distribution.*)
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,217 @@
+package guru.springframework.spring6restmvc.config;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Startup self-check of the beer listing indexes. Runs every BeerRepository query once with arguments taken from
+ * a stored beer, captures the SQL it sends with its parameters and EXPLAINs it. A statement that reads the whole
+ * beer table is logged as a warning, unless its query is one of the allowed full scans: a LIKE with a leading
+ * wildcard can't use an index, and loading the search index reads every beer on purpose.
+ *
+ * Each query runs in its own read-only transaction that is rolled back. The native queries are MySQL only (fulltext
+ * search) and only checked there.
+ */
+@Slf4j
+public class QueryPlanCheck {
+
+    private static final int PAGE_SIZE = 25;
+
+    private final BeerRepository beerRepository;
+    private final SqlInstrumentation instrumentation;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> allowedFullScans;
+
+    record Plan(String query, String sql, String plan, boolean fullScan) {}
+
+    public QueryPlanCheck(BeerRepository beerRepository, SqlInstrumentation instrumentation, DataSource dataSource,
+                          PlatformTransactionManager transactionManager, Set<String> allowedFullScans) {
+        this.beerRepository = beerRepository;
+        this.instrumentation = instrumentation;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.allowedFullScans = allowedFullScans;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            List<Plan> plans = check();
+            long warnings = plans.stream().filter(plan -> plan.fullScan() && !allowedFullScans.contains(plan.query())).count();
+            log.info("Query plan check: " + plans.size() + " statements of BeerRepository explained, "
+                    + warnings + " unexpected full scans");
+        } catch (RuntimeException e) {
+            log.warn("Query plan check failed", e);
+        }
+    }
+
+    //Package-private for tests
+    List<Plan> check() {
+        Optional<Beer> sample = beerRepository.findAll(PageRequest.of(0, 1)).stream().findFirst();
+        if (sample.isEmpty()) {
+            log.info("Query plan check skipped, there are no beers to take arguments from");
+            return List.of();
+        }
+
+        boolean mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().equals("MySQL"));
+
+        List<Plan> plans = new ArrayList<>();
+        Arrays.stream(BeerRepository.class.getDeclaredMethods())
+                .filter(method -> !method.isDefault() && !Modifier.isStatic(method.getModifiers()))
+                .filter(method -> !method.isAnnotationPresent(Modifying.class)) //writes, not worth a rolled back UPDATE
+                .filter(method -> mysql || !isNative(method)) //the fulltext searches
+                .sorted(Comparator.comparing(Method::getName))
+                .forEach(method -> plans.addAll(check(method, sample.get())));
+
+        return plans;
+    }
+
+    private List<Plan> check(Method method, Beer sample) {
+        String query = method.getName();
+        Object[] args = arguments(method, sample);
+        if (args == null) {
+            log.debug("Query plan check can't build arguments for BeerRepository." + query);
+            return List.of();
+        }
+
+        List<SqlInstrumentation.CapturedStatement> statements;
+        try {
+            statements = instrumentation.capture(() -> transactionTemplate.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                invoke(method, args);
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Query plan check could not run BeerRepository." + query + ": " + e.getMessage());
+            return List.of();
+        }
+
+        List<Plan> plans = new ArrayList<>();
+        for (SqlInstrumentation.CapturedStatement statement : statements) {
+            List<Map<String, Object>> rows = explain(statement);
+            boolean fullScan = rows.stream().anyMatch(QueryPlanCheck::isFullScan);
+            Plan plan = new Plan(query, statement.sql(), rows.toString(), fullScan);
+            plans.add(plan);
+
+            if (!fullScan) {
+                log.debug("Query plan of BeerRepository." + query + ": " + plan.plan());
+            } else if (allowedFullScans.contains(query)) {
+                log.debug("BeerRepository." + query + " reads the whole beer table, which is expected: " + plan.plan());
+            } else {
+                log.warn("BeerRepository." + query + " reads the whole beer table, check its indexes. SQL: "
+                        + statement.sql() + " Plan: " + plan.plan());
+            }
+        }
+        return plans;
+    }
+
+    private static boolean isNative(Method method) {
+        return method.isAnnotationPresent(Query.class) && method.getAnnotation(Query.class).nativeQuery();
+    }
+
+    private void invoke(Method method, Object[] args) {
+        try {
+            //The export streams run their query when they are opened
+            if (method.invoke(beerRepository, args) instanceof Stream<?> stream) {
+                stream.close();
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    //Arguments that select the sample beer, null for a parameter type this doesn't know
+    private static Object[] arguments(Method method, Beer sample) {
+        Parameter[] parameters = method.getParameters();
+        boolean separateLike = Arrays.stream(parameters).anyMatch(parameter -> name(parameter).equals("nameLike"));
+        String firstWord = sample.getBeerName().split("\\s+")[0];
+
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> type = parameters[i].getType();
+            String name = name(parameters[i]);
+
+            if (type == UUID.class) {
+                args[i] = sample.getId();
+            } else if (Collection.class.isAssignableFrom(type)) {
+                args[i] = List.of(sample.getId());
+            } else if (type == sample.getBeerStyle().getClass()) {
+                args[i] = sample.getBeerStyle();
+            } else if (type == int.class || type == Integer.class) {
+                args[i] = sample.getBeerStyle().ordinal(); //the native queries take the style as its ordinal
+            } else if (type == String.class && name.equals("query")) {
+                args[i] = "+" + firstWord + "*";
+            } else if (type == String.class && (name.equals("nameLike") || !separateLike && method.getName().contains("Like"))) {
+                args[i] = "%" + firstWord + "%"; //what the listing sends for beerName=
+            } else if (type == String.class) {
+                args[i] = sample.getBeerName(); //keyset cursor
+            } else if (type == Pageable.class) {
+                //The second page: an OFFSET like most listing requests have, and a Page usually runs its count query
+                args[i] = isNative(method) ? PageRequest.of(1, PAGE_SIZE) : PageRequest.of(1, PAGE_SIZE, Sort.by("beerName"));
+            } else {
+                return null;
+            }
+        }
+        return args;
+    }
+
+    private static String name(Parameter parameter) {
+        Param param = parameter.getAnnotation(Param.class);
+        return param != null ? param.value() : parameter.getName();
+    }
+
+    private List<Map<String, Object>> explain(SqlInstrumentation.CapturedStatement statement) {
+        return jdbcTemplate.query("EXPLAIN " + statement.sql(), ps -> {
+            for (Map.Entry<Integer, Object> parameter : statement.parameters().entrySet()) {
+                ps.setObject(parameter.getKey(), parameter.getValue());
+            }
+        }, (rs, rowNum) -> row(rs));
+    }
+
+    private static Map<String, Object> row(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            row.put(metaData.getColumnLabel(column).toLowerCase(Locale.ROOT), rs.getObject(column));
+        }
+        return row;
+    }
+
+    //MySQL has a row per table with access type ALL for a full scan. H2 has a single plan column that names
+    //tableScan, except for a count(*) it answers without reading rows
+    static boolean isFullScan(Map<String, Object> row) {
+        if (row.containsKey("type")) {
+            return "ALL".equals(row.get("type"));
+        }
+        String plan = String.valueOf(row.values().iterator().next());
+        return plan.contains("tableScan") && !plan.contains("direct lookup");
+    }
+}
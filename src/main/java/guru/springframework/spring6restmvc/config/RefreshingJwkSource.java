@@ -0,0 +1,88 @@
+package guru.springframework.spring6restmvc.config;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWKS key source that is loaded when the application is ready and refreshed in the background, so no request
+ * ever waits on the authorization server for keys. A token signed with a key we don't know yet (rotation)
+ * triggers one extra refresh, at most once per minRefreshGap. A failed refresh keeps serving the previous keys.
+ */
+@Slf4j
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, DisposableBean {
+
+    private final Callable<JWKSet> loader;
+    private final long minRefreshGapNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile JWKSet jwkSet;
+    private volatile long lastRefresh;
+
+    public RefreshingJwkSource(Callable<JWKSet> loader, Duration refreshInterval, Duration minRefreshGap) {
+        this.loader = loader;
+        this.minRefreshGapNanos = minRefreshGap.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::warmUp, refreshInterval.toMillis(), refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            refresh();
+        } catch (KeySourceException e) {
+            log.warn("Could not load the JWK set, will retry on the next refresh or request", e);
+        }
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        JWKSet current = jwkSet;
+        if (current == null) {
+            current = refresh();
+        }
+
+        List<JWK> keys = jwkSelector.select(current);
+        if (keys.isEmpty() && System.nanoTime() - lastRefresh > minRefreshGapNanos) {
+            keys = jwkSelector.select(refresh()); //maybe the keys have been rotated
+        }
+        return keys;
+    }
+
+    synchronized JWKSet refresh() throws KeySourceException {
+        try {
+            jwkSet = loader.call();
+            lastRefresh = System.nanoTime();
+        } catch (Exception e) {
+            if (jwkSet == null) {
+                throw new KeySourceException("Could not load the JWK set", e);
+            }
+            log.warn("JWK set refresh failed, keeping the previous keys", e);
+        }
+        return jwkSet;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,7 +1,14 @@
 package guru.springframework.spring6restmvc.config;
 
+import guru.springframework.spring6restmvc.controller.LocalJwksController;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
@@ -9,9 +16,37 @@ import org.springframework.security.web.SecurityFilterChain;
 @Configuration
 public class SpringSecurityConfig {
 
+    @Bean
+    public ManagementPortRequestMatcher managementPortRequestMatcher() {
+        return new ManagementPortRequestMatcher();
+    }
+
+    //Management port: health checks and Prometheus scrapes get in without a token, so they never wait on
+    //JWT validation. Everything else on that port still needs a token. The port is meant to stay internal
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementFilterChain(HttpSecurity http, ManagementPortRequestMatcher managementPort)
+            throws Exception {
+
+        http.securityMatcher(managementPort)
+                .authorizeHttpRequests()
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class, PrometheusScrapeEndpoint.class)).permitAll()
+                .anyRequest().authenticated()
+                .and().oauth2ResourceServer().jwt();
+        return http.build();
+    }
+
     //Adding a spring security filter chain
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    @Order(2)
+    public SecurityFilterChain filterChain(HttpSecurity http, Environment environment) throws Exception {
+
+        //The local auth server stand-in has to be reachable without a token
+        if (environment.acceptsProfiles(Profiles.of("localauth"))) {
+            http.authorizeHttpRequests()
+                    .requestMatchers(LocalJwksController.JWKS_PATH, LocalJwksController.TOKEN_PATH).permitAll()
+                    .and().csrf().ignoringRequestMatchers(LocalJwksController.TOKEN_PATH);
+        }
 
         http.authorizeHttpRequests()
                 .anyRequest().authenticated()
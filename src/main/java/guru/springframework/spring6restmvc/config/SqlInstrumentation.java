@@ -0,0 +1,145 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC statement counts and time per HTTP request, tagged by the handler that served it (BeerController.listBeers).
+ * {@link InstrumentedDataSource} reports every executed statement here, {@link SqlTimingFilter} opens and closes
+ * the per-request totals. Statements outside a request (the inventory ledger flush, imports) only count towards
+ * jdbc.statements. Time is measured around execute*, reading the ResultSet is not included, and a JDBC batch counts
+ * as one statement.
+ */
+@Slf4j
+public class SqlInstrumentation {
+
+    private static final String NO_HANDLER = "none";
+
+    static final class RequestStats {
+        final HttpServletRequest request;
+        int statements;
+        long nanos;
+
+        RequestStats(HttpServletRequest request) {
+            this.request = request;
+        }
+    }
+
+    private record HandlerMeters(DistributionSummary statements, Timer time, Counter slow) {}
+
+    //A statement as it was executed, parameters by their 1-based index
+    public record CapturedStatement(String sql, Map<Integer, Object> parameters) {}
+
+    private final ThreadLocal<RequestStats> current = new ThreadLocal<>();
+    private final ThreadLocal<List<CapturedStatement>> captured = new ThreadLocal<>();
+    //Statements only look up the capture list while a capture is running somewhere
+    private volatile boolean capturing;
+    private final Map<String, HandlerMeters> handlerMeters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdNanos;
+    private final Timer allStatements;
+
+    public SqlInstrumentation(MeterRegistry meterRegistry, Duration slowThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.allStatements = Timer.builder("jdbc.statements")
+                .description("Executed JDBC statements, from requests and background work")
+                .register(meterRegistry);
+    }
+
+    RequestStats begin(HttpServletRequest request) {
+        RequestStats stats = new RequestStats(request);
+        current.set(stats);
+        return stats;
+    }
+
+    void end(RequestStats stats) {
+        current.remove();
+
+        HandlerMeters meters = meters(handlerName(stats.request));
+        meters.statements().record(stats.statements);
+        meters.time().record(stats.nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs the work and returns the statements it executed on this thread, with their parameters. For the startup
+     * query plan check, which EXPLAINs them.
+     */
+    public List<CapturedStatement> capture(Runnable work) {
+        List<CapturedStatement> statements = new ArrayList<>();
+        captured.set(statements);
+        capturing = true;
+        try {
+            work.run();
+            return statements;
+        } finally {
+            captured.remove();
+            capturing = false;
+        }
+    }
+
+    boolean capturing() {
+        return capturing && captured.get() != null;
+    }
+
+    void executed(String sql, long nanos, Map<Integer, Object> parameters) {
+        if (parameters != null && capturing()) {
+            captured.get().add(new CapturedStatement(sql, new TreeMap<>(parameters)));
+        }
+        executed(sql, nanos);
+    }
+
+    void executed(String sql, long nanos) {
+        allStatements.record(nanos, TimeUnit.NANOSECONDS);
+
+        RequestStats stats = current.get();
+        if (stats != null) {
+            stats.statements++;
+            stats.nanos += nanos;
+        }
+
+        if (nanos >= slowThresholdNanos) {
+            String handler = stats == null ? NO_HANDLER : handlerName(stats.request);
+            meters(handler).slow().increment();
+            log.warn("Slow SQL in " + handler + ", " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms: " + sql);
+        }
+    }
+
+    private HandlerMeters meters(String handler) {
+        return handlerMeters.computeIfAbsent(handler, name -> new HandlerMeters(
+                DistributionSummary.builder("http.server.requests.jdbc.statements")
+                        .description("JDBC statements per request")
+                        .tag("handler", name)
+                        .register(meterRegistry),
+                Timer.builder("http.server.requests.jdbc.time")
+                        .description("Total JDBC execution time per request")
+                        .tag("handler", name)
+                        .register(meterRegistry),
+                Counter.builder("jdbc.statements.slow")
+                        .description("JDBC statements slower than sql.instrumentation.slow-threshold")
+                        .tag("handler", name)
+                        .register(meterRegistry)));
+    }
+
+    //Set by the DispatcherServlet once the handler is resolved, so it is known for every statement the handler runs
+    static String handlerName(HttpServletRequest request) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            return handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+        }
+        return NO_HANDLER;
+    }
+}
@@ -0,0 +1,64 @@
+package guru.springframework.spring6restmvc.config;
+
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * SQL statement instrumentation, on unless sql.instrumentation.enabled=false. Replaces show_sql and bind logging
+ * for numbers: statements and JDBC time per request by handler, slow statements logged and counted.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sql.instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlInstrumentationConfig {
+
+    @Bean
+    public SqlInstrumentation sqlInstrumentation(MeterRegistry meterRegistry,
+                                                 @Value("${sql.instrumentation.slow-threshold:200ms}") Duration slowThreshold) {
+        return new SqlInstrumentation(meterRegistry, slowThreshold);
+    }
+
+    //Static and lazy, so registering the post processor doesn't pull the meter registry in early
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<SqlInstrumentation> instrumentation) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, instrumentation.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlTimingFilter> sqlTimingFilter(SqlInstrumentation instrumentation,
+                                                                   @Value("${sql.instrumentation.server-timing:true}") boolean serverTiming) {
+        FilterRegistrationBean<SqlTimingFilter> registration =
+                new FilterRegistrationBean<>(new SqlTimingFilter(instrumentation, serverTiming));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 2); //inside the admission filter
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "beer.query-plan-check.enabled", havingValue = "true")
+    public QueryPlanCheck queryPlanCheck(BeerRepository beerRepository, SqlInstrumentation instrumentation,
+                                         DataSource dataSource, PlatformTransactionManager transactionManager,
+                                         @Value("${beer.query-plan-check.allowed-full-scans:}") Set<String> allowedFullScans) {
+        return new QueryPlanCheck(beerRepository, instrumentation, dataSource, transactionManager, allowedFullScans);
+    }
+}
@@ -0,0 +1,103 @@
+package guru.springframework.spring6restmvc.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Collects the JDBC totals of a request through {@link SqlInstrumentation}, and with serverTiming adds them as a
+ * Server-Timing header: db;dur=4.2;desc="3 statements". Headers have to go out before the body, so the header
+ * is added when the response starts its body or is flushed. Statements run while the body is written are in
+ * the metrics but not in the header.
+ */
+public class SqlTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final SqlInstrumentation instrumentation;
+    private final boolean serverTiming;
+
+    public SqlTimingFilter(SqlInstrumentation instrumentation, boolean serverTiming) {
+        this.instrumentation = instrumentation;
+        this.serverTiming = serverTiming;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        SqlInstrumentation.RequestStats stats = instrumentation.begin(request);
+        ServerTimingResponse timingResponse = serverTiming ? new ServerTimingResponse(response, stats) : null;
+        try {
+            filterChain.doFilter(request, timingResponse != null ? timingResponse : response);
+        } finally {
+            if (timingResponse != null) {
+                timingResponse.addServerTiming();
+            }
+            instrumentation.end(stats);
+        }
+    }
+
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+        private final SqlInstrumentation.RequestStats stats;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, SqlInstrumentation.RequestStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void addServerTiming() {
+            if (added || isCommitted()) {
+                return;
+            }
+            added = true;
+            addHeader(SERVER_TIMING, String.format(Locale.ROOT, "db;dur=%.1f;desc=\"%d statements\"",
+                    stats.nanos / 1_000_000.0, stats.statements));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
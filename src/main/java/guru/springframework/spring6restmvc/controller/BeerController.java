@@ -1,17 +1,45 @@
 package guru.springframework.spring6restmvc.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring6restmvc.model.BeerBulkResultDTO;
+import guru.springframework.spring6restmvc.model.BeerCsvImportResultDTO;
+import guru.springframework.spring6restmvc.model.BeerCursor;
+import guru.springframework.spring6restmvc.model.BeerCursorPageDTO;
 import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerExportFormat;
+import guru.springframework.spring6restmvc.model.BeerField;
 import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.services.BeerBulkService;
+import guru.springframework.spring6restmvc.services.BeerCsvImportService;
+import guru.springframework.spring6restmvc.services.BeerExportService;
 import guru.springframework.spring6restmvc.services.BeerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -23,24 +51,96 @@ public class BeerController {
 
     public static final String BEER_PATH = "/api/v1/beer";
     public static final String BEER_PATH_ID = BEER_PATH + "/{beerId}";
+    public static final String BEER_BULK_PATH = BEER_PATH + "/bulk";
+    public static final String BEER_IMPORT_PATH = BEER_PATH + "/import";
+    public static final String BEER_EXPORT_PATH = BEER_PATH + "/export";
 
     private final BeerService beerService;
+    private final BeerBulkService beerBulkService;
+    private final BeerCsvImportService beerCsvImportService;
+    private final BeerExportService beerExportService;
+    private final ObjectMapper objectMapper;
 
 
+    //category=<id> narrows the listing to the beers of a category. Only this page listing filters by category, the
+    //fields, slice and cursor modes below step aside when it is sent
     @GetMapping(BEER_PATH)
     public Page<BeerDTO> listBeers(@RequestParam(required = false) String beerName,
                                    @RequestParam(required = false) BeerStyle beerStyle,
+                                   @RequestParam(required = false) UUID category,
                                    @RequestParam(required = false) Boolean showInventory,
                                    @RequestParam(required = false) Integer pageNumber,
                                    @RequestParam(required = false) Integer pageSize){
 
+        if (category != null) {
+            return beerService.listBeersByCategory(category, beerName, beerStyle, showInventory, pageNumber, pageSize);
+        }
         return beerService.listBeers(beerName, beerStyle, showInventory, pageNumber, pageSize);
     }
 
+    //Sparse fieldsets: fields=beerName,price only selects those columns, and the response only carries those properties
+    @GetMapping(value = BEER_PATH, params = {"fields", "!cursor", "slice!=true", "!category"})
+    public Page<Map<String, Object>> listBeersWithFields(@RequestParam(required = false) String beerName,
+                                                         @RequestParam(required = false) BeerStyle beerStyle,
+                                                         @RequestParam String fields,
+                                                         @RequestParam(required = false) Integer pageNumber,
+                                                         @RequestParam(required = false) Integer pageSize){
+        Set<BeerField> selected;
+        try {
+            selected = BeerField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        return beerService.listBeersWithFields(beerName, beerStyle, selected, pageNumber, pageSize)
+                .map(beer -> BeerField.toMap(selected, beer));
+    }
+
+    //Slice mode: same filters and paging, but no totals in the response and no count query behind it
+    @GetMapping(value = BEER_PATH, params = {"slice=true", "!cursor", "!category"})
+    public Slice<BeerDTO> listBeersSlice(@RequestParam(required = false) String beerName,
+                                         @RequestParam(required = false) BeerStyle beerStyle,
+                                         @RequestParam(required = false) Boolean showInventory,
+                                         @RequestParam(required = false) Integer pageNumber,
+                                         @RequestParam(required = false) Integer pageSize){
+
+        return beerService.listBeersSlice(beerName, beerStyle, showInventory, pageNumber, pageSize);
+    }
+
+    //Cursor mode: selected whenever the cursor parameter is present, send it empty to get the first page
+    @GetMapping(value = BEER_PATH, params = {"cursor", "!category"})
+    public BeerCursorPageDTO listBeersByCursor(@RequestParam(required = false) String beerName,
+                                               @RequestParam(required = false) BeerStyle beerStyle,
+                                               @RequestParam(required = false) Boolean showInventory,
+                                               @RequestParam String cursor,
+                                               @RequestParam(required = false) Integer pageSize){
+        BeerCursor after;
+        try {
+            after = BeerCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+
+        return beerService.listBeersAfter(beerName, beerStyle, showInventory, after, pageSize);
+    }
+
 
     @GetMapping(BEER_PATH_ID)
-    public BeerDTO getBeerById(@PathVariable("beerId") UUID beerId){
-        return beerService.getBeerById(beerId).orElseThrow(NotFoundException::new);
+    public ResponseEntity<BeerDTO> getBeerById(@PathVariable("beerId") UUID beerId,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        //Revalidation only needs the version, so a 304 never loads, maps or serializes the beer
+        if (ifNoneMatch != null) {
+            String etag = EntityTags.of(beerId, beerService.getBeerVersion(beerId).orElseThrow(NotFoundException::new));
+
+            if (EntityTags.matchesWeak(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        BeerDTO beerDTO = beerService.getBeerById(beerId).orElseThrow(NotFoundException::new);
+
+        return ResponseEntity.ok().eTag(EntityTags.of(beerId, beerDTO.getVersion())).body(beerDTO);
     }
 
     @PostMapping(BEER_PATH)
@@ -54,10 +154,96 @@ public class BeerController {
         return new ResponseEntity(headers, HttpStatus.CREATED);
     }
 
+    //Bulk create/update: items are validated one by one, the response has one result per item in request order
+    @PostMapping(value = BEER_BULK_PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BeerBulkResultDTO> handleBulkPost(@RequestBody List<BeerDTO> beers){
+
+        return beerBulkService.saveBeers(beers.iterator());
+    }
+
+    //NDJSON variant: one beer per line, read as the chunks are written so the request body is never held in memory.
+    //A line that can't be parsed is reported as INVALID instead of failing the whole request
+    @PostMapping(value = BEER_BULK_PATH, consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<BeerBulkResultDTO> handleBulkPostNdjson(InputStream body) throws IOException {
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return beerBulkService.saveBeers(reader.lines()
+                    .filter(line -> !line.isBlank())
+                    .map(this::readBeer)
+                    .iterator());
+        }
+    }
+
+    //CSV import in the csvdata/beers.csv format. The raw text/csv body (curl --data-binary @beers.csv) is streamed
+    //into the import pipeline, so neither the request nor the parsed rows are ever held in memory as a whole
+    //With parallel=true the body is spooled to a temp file first, the parallel import needs to map it in partitions
+    @PostMapping(value = BEER_IMPORT_PATH, consumes = "text/csv")
+    public BeerCsvImportResultDTO handleCsvImport(InputStream body,
+                                                  @RequestParam(defaultValue = "false") boolean parallel) throws IOException {
+
+        if (parallel) {
+            Path spool = Files.createTempFile("beer-import", ".csv");
+            try {
+                Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+                return beerCsvImportService.importCsvParallel(spool);
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return beerCsvImportService.importCsv(reader);
+        }
+    }
+
+    //The whole catalog, or what beerName and beerStyle match, in one response: NDJSON, or CSV for Accept: text/csv.
+    //Written while it is read from the database, so it is never held in memory and there is no page size cap
+    @GetMapping(value = BEER_EXPORT_PATH, produces = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<StreamingResponseBody> exportBeers(@RequestParam(required = false) String beerName,
+                                                             @RequestParam(required = false) BeerStyle beerStyle,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+
+        BeerExportFormat format = exportFormat(accept);
+
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.parseMediaType(format.getMediaType()), StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(format.getFileName()).build().toString())
+                .body(out -> beerExportService.exportBeers(beerName, beerStyle, format, out));
+    }
+
+    //CSV when the client prefers it over NDJSON, */* gets NDJSON
+    private static BeerExportFormat exportFormat(String accept){
+        List<MediaType> accepted = accept == null ? List.of(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+
+        return quality(accepted, BeerExportFormat.CSV) > quality(accepted, BeerExportFormat.NDJSON)
+                ? BeerExportFormat.CSV : BeerExportFormat.NDJSON;
+    }
+
+    private static double quality(List<MediaType> accepted, BeerExportFormat format){
+        MediaType mediaType = MediaType.parseMediaType(format.getMediaType());
+
+        return accepted.stream()
+                .filter(type -> type.includes(mediaType))
+                .mapToDouble(MediaType::getQualityValue)
+                .max()
+                .orElse(0);
+    }
+
+    private BeerDTO readBeer(String line){
+        try {
+            return objectMapper.readValue(line, BeerDTO.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
     @PutMapping(BEER_PATH_ID)
-    public ResponseEntity updateById(@PathVariable("beerId") UUID beerId, @Validated @RequestBody BeerDTO beer){
+    public ResponseEntity updateById(@PathVariable("beerId") UUID beerId, @Validated @RequestBody BeerDTO beer,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 
-        beerService.updateBeerById(beerId, beer).orElseThrow(NotFoundException::new);
+        EntityTags.checkWritten(beerService.updateBeerById(beerId, beer,
+                EntityTags.expectedVersions(beerId, beer.getVersion(), ifMatch)), ifMatch, "Beer");
 
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
 
@@ -73,9 +259,11 @@ public class BeerController {
     }
 
     @PatchMapping(BEER_PATH_ID)
-    public ResponseEntity updateBeerPatchById(@PathVariable("beerId") UUID beerID, @RequestBody BeerDTO beer){
+    public ResponseEntity updateBeerPatchById(@PathVariable("beerId") UUID beerID, @RequestBody BeerDTO beer,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 
-        beerService.patchBeerById(beerID, beer).orElseThrow(NotFoundException::new);
+        EntityTags.checkWritten(beerService.patchBeerById(beerID, beer,
+                EntityTags.expectedVersions(beerID, beer.getVersion(), ifMatch)), ifMatch, "Beer");
 
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
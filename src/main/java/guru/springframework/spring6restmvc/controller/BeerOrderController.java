@@ -0,0 +1,46 @@
+package guru.springframework.spring6restmvc.controller;
+
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import guru.springframework.spring6restmvc.services.BeerOrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+@RestController
+public class BeerOrderController {
+
+    public static final String BEER_ORDER_PATH = "/api/v1/beerOrder";
+    public static final String BEER_ORDER_PATH_ID = BEER_ORDER_PATH + "/{beerOrderId}";
+
+    private final BeerOrderService beerOrderService;
+
+    @GetMapping(BEER_ORDER_PATH)
+    public Page<BeerOrderDTO> listBeerOrders(@RequestParam(required = false) Integer pageNumber,
+                                             @RequestParam(required = false) Integer pageSize){
+        return beerOrderService.listBeerOrders(pageNumber, pageSize);
+    }
+
+    @GetMapping(BEER_ORDER_PATH_ID)
+    public BeerOrderDTO getBeerOrderById(@PathVariable("beerOrderId") UUID beerOrderId){
+        return beerOrderService.getBeerOrderById(beerOrderId).orElseThrow(NotFoundException::new);
+    }
+
+    //The body carries the allocation result: quantityAllocated is the full orderQuantity, or 0 for a backordered line
+    @PostMapping(BEER_ORDER_PATH)
+    public ResponseEntity<BeerOrderDTO> placeOrder(@Validated @RequestBody BeerOrderCreateDTO beerOrder){
+
+        BeerOrderDTO savedOrder = beerOrderService.placeOrder(beerOrder)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Unknown customer or beer"));
+
+        return ResponseEntity.created(URI.create(BEER_ORDER_PATH + "/" + savedOrder.getId())).body(savedOrder);
+    }
+}
@@ -0,0 +1,83 @@
+package guru.springframework.spring6restmvc.controller;
+
+import guru.springframework.spring6restmvc.model.CategoryDTO;
+import guru.springframework.spring6restmvc.services.CategoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+//The category catalog, and which beers are in a category. GET /api/v1/beer?category= lists the beers of one
+@RequiredArgsConstructor
+@RestController
+public class CategoryController {
+    public static final String CATEGORY_PATH = "/api/v1/category";
+    public static final String CATEGORY_PATH_ID = CATEGORY_PATH + "/{categoryId}";
+    public static final String CATEGORY_BEER_PATH = CATEGORY_PATH_ID + "/beer/{beerId}";
+    public static final String BEER_CATEGORY_PATH = BeerController.BEER_PATH_ID + "/category";
+
+    private final CategoryService categoryService;
+
+    @GetMapping(CATEGORY_PATH)
+    public List<CategoryDTO> listCategories(){
+        return categoryService.listCategories();
+    }
+
+    @GetMapping(CATEGORY_PATH_ID)
+    public CategoryDTO getCategoryById(@PathVariable("categoryId") UUID categoryId){
+        return categoryService.getCategoryById(categoryId).orElseThrow(NotFoundException::new);
+    }
+
+    @PostMapping(CATEGORY_PATH)
+    public ResponseEntity saveCategory(@Validated @RequestBody CategoryDTO category){
+        CategoryDTO savedCategory = categoryService.saveNewCategory(category);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Location", CATEGORY_PATH + "/" + savedCategory.getId().toString());
+
+        return new ResponseEntity(headers, HttpStatus.CREATED);
+    }
+
+    @PutMapping(CATEGORY_PATH_ID)
+    public ResponseEntity updateCategoryById(@PathVariable("categoryId") UUID categoryId,
+                                             @Validated @RequestBody CategoryDTO category){
+        categoryService.updateCategoryById(categoryId, category).orElseThrow(NotFoundException::new);
+
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    @DeleteMapping(CATEGORY_PATH_ID)
+    public ResponseEntity deleteCategoryById(@PathVariable("categoryId") UUID categoryId){
+        if (!categoryService.deleteCategoryById(categoryId)){
+            throw new NotFoundException();
+        }
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping(BEER_CATEGORY_PATH)
+    public List<CategoryDTO> listBeerCategories(@PathVariable("beerId") UUID beerId){
+        return categoryService.getBeerCategories(beerId).orElseThrow(NotFoundException::new);
+    }
+
+    //Puts a beer in a category, idempotent
+    @PutMapping(CATEGORY_BEER_PATH)
+    public ResponseEntity addBeer(@PathVariable("categoryId") UUID categoryId, @PathVariable("beerId") UUID beerId){
+        if (!categoryService.addBeer(categoryId, beerId)){
+            throw new NotFoundException();
+        }
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    @DeleteMapping(CATEGORY_BEER_PATH)
+    public ResponseEntity removeBeer(@PathVariable("categoryId") UUID categoryId, @PathVariable("beerId") UUID beerId){
+        if (!categoryService.removeBeer(categoryId, beerId)){
+            throw new NotFoundException();
+        }
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+}
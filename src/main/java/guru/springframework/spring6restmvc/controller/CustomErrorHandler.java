@@ -34,15 +34,24 @@ public class CustomErrorHandler {
         if(exception.getCause().getCause() instanceof ConstraintViolationException){
             ConstraintViolationException ve = (ConstraintViolationException) exception.getCause().getCause();
 
-            List error = ve.getConstraintViolations().stream()
-                    .map(constraintViolation -> {
-                        Map<String, String > errorMap = new HashMap<>();
-                        errorMap.put(constraintViolation.getPropertyPath().toString(), constraintViolation.getMessage());
-                        return errorMap;
-                    })
-                    .collect(Collectors.toList());
-            return responseEntity.body(error);
+            return responseEntity.body(constraintViolationErrors(ve));
         }
         return responseEntity.build();
     }
+
+    //Thrown directly instead of wrapped in a TransactionSystemException when the violation surfaces on flush
+    @ExceptionHandler
+    ResponseEntity handleConstraintViolations(ConstraintViolationException exception){
+        return ResponseEntity.badRequest().body(constraintViolationErrors(exception));
+    }
+
+    private List constraintViolationErrors(ConstraintViolationException ve){
+        return ve.getConstraintViolations().stream()
+                .map(constraintViolation -> {
+                    Map<String, String > errorMap = new HashMap<>();
+                    errorMap.put(constraintViolation.getPropertyPath().toString(), constraintViolation.getMessage());
+                    return errorMap;
+                })
+                .collect(Collectors.toList());
+    }
 }
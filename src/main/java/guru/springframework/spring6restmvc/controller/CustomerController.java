@@ -3,6 +3,7 @@ package guru.springframework.spring6restmvc.controller;
 import guru.springframework.spring6restmvc.model.CustomerDTO;
 import guru.springframework.spring6restmvc.services.CustomerService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,14 +24,39 @@ public class CustomerController {
 
     private final CustomerService customerService;
 
-    @GetMapping(CUSTOMER_PATH)
+    @GetMapping(value = CUSTOMER_PATH, params = {"!pageSize", "!slice"})
     List<CustomerDTO> listCustomers(){
         return customerService.getAllCustomers();
     }
 
+    //Paged listing, picked when pageSize or slice is sent. slice=true drops the totals and with them the count query
+    @GetMapping(CUSTOMER_PATH)
+    Slice<CustomerDTO> listCustomers(@RequestParam(required = false) Integer pageNumber,
+                                     @RequestParam(required = false) Integer pageSize,
+                                     @RequestParam(defaultValue = "false") boolean slice){
+        if (slice) {
+            return customerService.listCustomersSlice(pageNumber, pageSize);
+        }
+        return customerService.listCustomers(pageNumber, pageSize);
+    }
+
     @GetMapping(CUSTOMER_PATH_ID)
-    CustomerDTO getCustomerById(@PathVariable("customerId") UUID customerId){
-        return customerService.getCustomerById(customerId).orElseThrow(NotFoundException::new);
+    ResponseEntity<CustomerDTO> getCustomerById(@PathVariable("customerId") UUID customerId,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        //Revalidation only needs the version, so a 304 never loads, maps or serializes the customer
+        if (ifNoneMatch != null) {
+            String etag = EntityTags.of(customerId,
+                    customerService.getCustomerVersion(customerId).orElseThrow(NotFoundException::new));
+
+            if (EntityTags.matchesWeak(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        CustomerDTO customerDTO = customerService.getCustomerById(customerId).orElseThrow(NotFoundException::new);
+
+        return ResponseEntity.ok().eTag(EntityTags.of(customerId, customerDTO.getVersion())).body(customerDTO);
     }
 
     @PostMapping (CUSTOMER_PATH)
@@ -44,8 +70,10 @@ public class CustomerController {
     }
 
     @PutMapping(CUSTOMER_PATH_ID)
-    public ResponseEntity updateCustomerById(@PathVariable("customerId") UUID customerId, @RequestBody CustomerDTO customer){
-        customerService.updateCustomerById(customerId, customer).orElseThrow(NotFoundException::new);
+    public ResponseEntity updateCustomerById(@PathVariable("customerId") UUID customerId, @RequestBody CustomerDTO customer,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        EntityTags.checkWritten(customerService.updateCustomerById(customerId, customer,
+                EntityTags.expectedVersions(customerId, customer.getVersion(), ifMatch)), ifMatch, "Customer");
 
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
@@ -60,8 +88,10 @@ public class CustomerController {
     }
 
    @PatchMapping(CUSTOMER_PATH_ID)
-    public ResponseEntity patchCustomerById(@PathVariable("customerId") UUID customerId, @RequestBody CustomerDTO customer){
-        customerService.patchCustomerById(customerId, customer).orElseThrow(NotFoundException::new);
+    public ResponseEntity patchCustomerById(@PathVariable("customerId") UUID customerId, @RequestBody CustomerDTO customer,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        EntityTags.checkWritten(customerService.patchCustomerById(customerId, customer,
+                EntityTags.expectedVersions(customerId, customer.getVersion(), ifMatch)), ifMatch, "Customer");
 
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
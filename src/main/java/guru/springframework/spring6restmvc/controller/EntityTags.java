@@ -0,0 +1,78 @@
+package guru.springframework.spring6restmvc.controller;
+
+import guru.springframework.spring6restmvc.services.WriteResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Strong ETags built from an entity's id and @Version. The version changes on every committed update,
+ * so a matching tag means the client's copy is current and a version lookup is enough to validate it.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    static String of(UUID id, Number version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    //If-None-Match uses weak comparison: W/"x" matches "x"
+    static boolean matchesWeak(String header, String etag) {
+        return matches(header, etag, true);
+    }
+
+    //The versions a write may replace: those of If-Match when it is sent, else the version of the body. Null writes
+    //unconditionally
+    static Collection<Integer> expectedVersions(UUID id, Integer version, String ifMatch) {
+        if (ifMatch != null) {
+            return versions(id, ifMatch);
+        }
+        return version != null ? List.of(version) : null;
+    }
+
+    //A conditional write that matched no row: 412 for a stale If-Match, 409 for a stale version in the body
+    static void checkWritten(WriteResult result, String ifMatch, String entity) {
+        switch (result) {
+            case NOT_FOUND -> throw new NotFoundException();
+            case CONFLICT -> throw new ResponseStatusException(
+                    ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT, entity + " has been modified");
+            case WRITTEN -> { }
+        }
+    }
+
+    //The versions an If-Match header accepts, for a conditional UPDATE ... WHERE version IN (...). Null for "*",
+    //any version will do. Weak tags, tags of other entities and versions no int holds are ignored, so the list can
+    //be empty: nothing matches
+    static Collection<Integer> versions(UUID id, String ifMatch) {
+        if (ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + id + "-";
+        return Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .filter(tag -> tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1)
+                .map(tag -> tag.substring(prefix.length(), tag.length() - 1))
+                .filter(version -> version.length() <= 10 && version.chars().allMatch(Character::isDigit))
+                .map(Long::parseLong)
+                .filter(version -> version <= Integer.MAX_VALUE)
+                .map(Long::intValue)
+                .toList();
+    }
+
+    //Handles "*" and comma separated lists of tags
+    private static boolean matches(String header, String etag, boolean weak) {
+        if (header.trim().equals("*")) {
+            return true;
+        }
+        return Arrays.stream(header.split(","))
+                .map(String::trim)
+                .map(tag -> weak && tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(etag::equals);
+    }
+}
@@ -0,0 +1,35 @@
+package guru.springframework.spring6restmvc.controller;
+
+import guru.springframework.spring6restmvc.config.LocalJwks;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+//Endpoints of the local auth server stand-in, only with the localauth profile
+@Profile("localauth")
+@RequiredArgsConstructor
+@RestController
+public class LocalJwksController {
+
+    public static final String JWKS_PATH = "/oauth2/jwks";
+    public static final String TOKEN_PATH = "/local/token";
+
+    private final LocalJwks localJwks;
+
+    @GetMapping(JWKS_PATH)
+    public Map<String, Object> jwks(){
+        return localJwks.jwkSet().toJSONObject();
+    }
+
+    @PostMapping(TOKEN_PATH)
+    public Map<String, String> token(@RequestParam(defaultValue = "messaging-client") String subject,
+                                     @RequestParam(defaultValue = "message-read message-write") String scope){
+        return Map.of("access_token", localJwks.mint(subject, scope, Duration.ofMinutes(15)), "token_type", "Bearer");
+    }
+}
@@ -6,11 +6,11 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
-import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
-import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,14 +22,20 @@ import java.util.UUID;
 @Setter
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "beer_name_id_idx", columnList = "beerName, id"), //keyset pagination order
+        @Index(name = "beer_style_name_id_idx", columnList = "beerStyle, beerName, id") //listing by style
+})
 @AllArgsConstructor
 @NoArgsConstructor
 public class Beer {
+
+    public static final String CATEGORIES_CACHE_REGION = "beer-categories";
+
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-    @JdbcTypeCode(SqlTypes.CHAR)
-    @Column(length = 36, columnDefinition = "varchar(36)", updatable = false, nullable = false)
+    @GenericGenerator(name = "UUID", strategy = TimeOrderedUuidGenerator.STRATEGY)
+    @Column(updatable = false, nullable = false)
     private UUID id;
 
     @Version
@@ -59,11 +65,14 @@ public class Beer {
     @UpdateTimestamp //hibernate annotation
     private LocalDateTime updateDate;
 
+    //Cached as the category ids of each beer, the categories themselves come from the category region
     @Builder.Default
     @ManyToMany
     @JoinTable(name = "beer_category", //name of Join table
         joinColumns = @JoinColumn(name = "beer_id"), //Id of current entity
-        inverseJoinColumns = @JoinColumn(name = "category_id")) //Id of related entity
+        inverseJoinColumns = @JoinColumn(name = "category_id"), //Id of related entity
+        indexes = @Index(name = "beer_category_category_beer_idx", columnList = "category_id, beer_id")) //listing by category
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CATEGORIES_CACHE_REGION)
     private Set<Category> categories = new HashSet<>();
 
     //We want to add and remove category from the beer object
@@ -74,7 +83,7 @@ public class Beer {
 
     public void removeCategory(Category category){
         this.categories.remove(category);
-        category.getBeers().remove(category);
+        category.getBeers().remove(this);
     }
 
 
@@ -0,0 +1,44 @@
+package guru.springframework.spring6restmvc.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Journal of stock taken by the in-memory inventory ledger but not yet subtracted from beer.quantity_on_hand.
+ * Written in the order transaction, deleted in the transaction that applies it to the beer, so after a crash
+ * the rows still here are exactly the reservations that have to be replayed.
+ */
+@Getter
+@Setter
+@Builder
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(indexes = @Index(name = "inventory_reservation_beer_idx", columnList = "beerId"))
+public class InventoryReservation {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = TimeOrderedUuidGenerator.STRATEGY)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    //Plain ids, nothing here is ever navigated
+    @Column(updatable = false, nullable = false)
+    private UUID beerId;
+
+    @Column(updatable = false)
+    private UUID beerOrderLineId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Timestamp createdDate;
+}
@@ -0,0 +1,15 @@
+package guru.springframework.spring6restmvc.mappers;
+
+import guru.springframework.spring6restmvc.entities.Category;
+import guru.springframework.spring6restmvc.model.CategoryDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper
+public interface CategoryMapper {
+
+    CategoryDTO categoryToCategoryDto(Category category);
+
+    @Mapping(target = "beers", ignore = true)
+    Category categoryDtoToCategory(CategoryDTO categoryDTO);
+}
@@ -0,0 +1,25 @@
+package guru.springframework.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+//Outcome of one item of a bulk request, index is the position of the item in the request. A CONFLICT carries the
+//current version of the beer, the item was not written
+@Builder
+@Data
+public class BeerBulkResultDTO {
+
+    public enum Status { CREATED, UPDATED, INVALID, NOT_FOUND, CONFLICT, FAILED }
+
+    private int index;
+    private Status status;
+    private UUID id;
+    private Integer version;
+
+    //Same shape as the validation errors of the single item endpoints
+    private List<Map<String, String>> errors;
+}
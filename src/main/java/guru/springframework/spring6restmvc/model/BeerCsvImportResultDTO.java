@@ -0,0 +1,17 @@
+package guru.springframework.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class BeerCsvImportResultDTO {
+
+    private long rowsRead;
+    private long rowsImported;
+
+    //malformed lines and rows without a beer name or row number
+    private long rowsSkipped;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+}
@@ -0,0 +1,41 @@
+package guru.springframework.spring6restmvc.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last beer returned by a keyset (seek) listing. Clients only ever see the encoded token,
+ * the (beerName, id) pair inside it is an implementation detail.
+ */
+public record BeerCursor(String beerName, UUID id) {
+
+    //Sorts before every real row: beer names are never blank, so ("", nil uuid) starts from the beginning
+    public static final BeerCursor START = new BeerCursor("", new UUID(0L, 0L));
+
+    private static final char SEPARATOR = '\n';
+
+    public static BeerCursor of(BeerDTO beer) {
+        return new BeerCursor(beer.getBeerName(), beer.getId());
+    }
+
+    public String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + beerName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //Empty token means "first page". Anything we can't read back throws IllegalArgumentException
+    public static BeerCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = raw.indexOf(SEPARATOR);
+
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new BeerCursor(raw.substring(separator + 1), UUID.fromString(raw.substring(0, separator)));
+    }
+}
@@ -0,0 +1,16 @@
+package guru.springframework.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class BeerCursorPageDTO {
+
+    private List<BeerDTO> content;
+
+    //null when this is the last page, otherwise pass it back as the cursor parameter
+    private String nextCursor;
+}
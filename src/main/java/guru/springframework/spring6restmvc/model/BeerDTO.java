@@ -2,6 +2,7 @@ package guru.springframework.spring6restmvc.model;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
@@ -9,8 +10,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
+@AllArgsConstructor //used by the "select new BeerDTO(...)" projections in BeerRepository, keep the field order
 public class BeerDTO {
     private UUID id;
     private Integer version;
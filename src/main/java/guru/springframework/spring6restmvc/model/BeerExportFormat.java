@@ -0,0 +1,27 @@
+package guru.springframework.spring6restmvc.model;
+
+/**
+ * Formats of the catalog export. NDJSON has one BeerDTO per line, CSV a header row with the BeerField names and
+ * one row per beer.
+ */
+public enum BeerExportFormat {
+
+    NDJSON("application/x-ndjson", "beers.ndjson"),
+    CSV("text/csv", "beers.csv");
+
+    private final String mediaType;
+    private final String fileName;
+
+    BeerExportFormat(String mediaType, String fileName) {
+        this.mediaType = mediaType;
+        this.fileName = fileName;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+}
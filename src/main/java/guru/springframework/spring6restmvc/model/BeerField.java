@@ -0,0 +1,77 @@
+package guru.springframework.spring6restmvc.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The BeerDTO properties a listing can select with fields=. The property name is both the JSON name and
+ * the Beer entity attribute, so a selection turns straight into the columns of the SQL select.
+ */
+public enum BeerField {
+
+    ID("id", BeerDTO::getId, (beer, value) -> beer.setId((UUID) value)),
+    VERSION("version", BeerDTO::getVersion, (beer, value) -> beer.setVersion((Integer) value)),
+    BEER_NAME("beerName", BeerDTO::getBeerName, (beer, value) -> beer.setBeerName((String) value)),
+    BEER_STYLE("beerStyle", BeerDTO::getBeerStyle, (beer, value) -> beer.setBeerStyle((BeerStyle) value)),
+    UPC("upc", BeerDTO::getUpc, (beer, value) -> beer.setUpc((String) value)),
+    QUANTITY_ON_HAND("quantityOnHand", BeerDTO::getQuantityOnHand, (beer, value) -> beer.setQuantityOnHand((Integer) value)),
+    PRICE("price", BeerDTO::getPrice, (beer, value) -> beer.setPrice((BigDecimal) value)),
+    CREATED_DATE("createdDate", BeerDTO::getCreatedDate, (beer, value) -> beer.setCreatedDate((LocalDateTime) value)),
+    UPDATE_DATE("updateDate", BeerDTO::getUpdateDate, (beer, value) -> beer.setUpdateDate((LocalDateTime) value));
+
+    //showInventory=false: everything but the inventory column
+    public static final Set<BeerField> WITHOUT_INVENTORY =
+            Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(QUANTITY_ON_HAND)));
+
+    private final String property;
+    private final Function<BeerDTO, Object> getter;
+    private final BiConsumer<BeerDTO, Object> setter;
+
+    BeerField(String property, Function<BeerDTO, Object> getter, BiConsumer<BeerDTO, Object> setter) {
+        this.property = property;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Object get(BeerDTO beer) {
+        return getter.apply(beer);
+    }
+
+    public void set(BeerDTO beer, Object value) {
+        setter.accept(beer, value);
+    }
+
+    //"beerName,price" -> [BEER_NAME, PRICE]. Unknown names and empty selections are rejected
+    public static Set<BeerField> parse(String fields) {
+        EnumSet<BeerField> selected = EnumSet.noneOf(BeerField.class);
+
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(Arrays.stream(values())
+                    .filter(field -> field.property.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown beer field: " + trimmed)));
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("No beer fields selected");
+        }
+        return selected;
+    }
+
+    //Only the selected properties, so unselected ones don't show up as nulls in the response
+    public static Map<String, Object> toMap(Set<BeerField> fields, BeerDTO beer) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        fields.forEach(field -> values.put(field.property, field.get(beer)));
+        return values;
+    }
+}
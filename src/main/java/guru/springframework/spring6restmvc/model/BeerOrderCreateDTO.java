@@ -0,0 +1,24 @@
+package guru.springframework.spring6restmvc.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+//Request body of POST /api/v1/beerOrder
+@Builder
+@Data
+public class BeerOrderCreateDTO {
+
+    @NotNull
+    private UUID customerId;
+
+    private String customerRef;
+
+    @NotEmpty
+    private List<@Valid BeerOrderLineDTO> beerOrderLines;
+}
@@ -0,0 +1,22 @@
+package guru.springframework.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Builder
+@Data
+public class BeerOrderDTO {
+
+    private UUID id;
+    private Long version;
+    private String customerRef;
+    private UUID customerId;
+    private List<BeerOrderLineDTO> beerOrderLines;
+    private String trackingNumber;
+    private LocalDateTime createdDate;
+    private LocalDateTime lastModifiedDate;
+}
@@ -0,0 +1,28 @@
+package guru.springframework.spring6restmvc.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryDTO {
+
+    private UUID id;
+    private Long version;
+
+    @NotBlank
+    @Size(max = 50)
+    private String description;
+
+    private LocalDateTime createdDate;
+    private LocalDateTime lastModifiedDate;
+}
@@ -1,5 +1,6 @@
 package guru.springframework.spring6restmvc.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
@@ -8,6 +9,7 @@ import java.util.UUID;
 
 @Data
 @Builder
+@AllArgsConstructor //used by the "select new CustomerDTO(...)" projections in CustomerRepository, keep the field order
 public class CustomerDTO {
 
     private String name;
@@ -1,9 +1,33 @@
 package guru.springframework.spring6restmvc.repositories;
 
 import guru.springframework.spring6restmvc.entities.BeerOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface BeerOrderRepository extends JpaRepository<BeerOrder, UUID> {
+
+    //Order reads load an order with its lines and shipment in one select. Customer and beer stay lazy proxies,
+    //the DTOs only need their ids and those come from the foreign key columns
+    String ORDER_GRAPH_LINES = "beerOrderLines";
+    String ORDER_GRAPH_SHIPMENT = "beerOrderShipment";
+
+    @EntityGraph(attributePaths = {ORDER_GRAPH_LINES, ORDER_GRAPH_SHIPMENT})
+    Optional<BeerOrder> findWithLinesById(UUID id);
+
+    //Listings page over the ids first: fetch joining a collection into a paged query makes Hibernate read every
+    //row and page in memory. The page is then loaded with findWithLinesByIdIn
+    @Query(value = "select o.id from BeerOrder o", countQuery = "select count(o) from BeerOrder o")
+    Page<UUID> findIds(Pageable pageable);
+
+    //Unordered, callers put the orders back in the order of their ids
+    @EntityGraph(attributePaths = {ORDER_GRAPH_LINES, ORDER_GRAPH_SHIPMENT})
+    List<BeerOrder> findWithLinesByIdIn(Collection<UUID> ids);
 }
@@ -0,0 +1,21 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerField;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+//Sparse fieldset queries: only the columns of the given fields (plus the id) are selected, the other DTO fields stay null
+public interface BeerProjectionRepository {
+
+    Page<BeerDTO> findAllProjected(Set<BeerField> fields, BeerStyle beerStyle, Pageable pageable);
+
+    //Unordered, like findAllDtosByIdIn
+    List<BeerDTO> findAllProjectedByIdIn(Set<BeerField> fields, Collection<UUID> ids);
+}
@@ -0,0 +1,101 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerField;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+//Criteria implementation of BeerProjectionRepository, picked up by Spring Data through the Impl suffix
+@RequiredArgsConstructor
+class BeerProjectionRepositoryImpl implements BeerProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Page<BeerDTO> findAllProjected(Set<BeerField> fields, BeerStyle beerStyle, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Beer> beer = query.from(Beer.class);
+
+        List<BeerField> selected = selection(fields);
+        query.multiselect(columns(selected, beer));
+        if (beerStyle != null) {
+            query.where(cb.equal(beer.get("beerStyle"), beerStyle));
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), beer, cb));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<BeerDTO> content = toDtos(selected, typedQuery.getResultList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(beerStyle));
+    }
+
+    @Override
+    public List<BeerDTO> findAllProjectedByIdIn(Set<BeerField> fields, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Beer> beer = query.from(Beer.class);
+
+        List<BeerField> selected = selection(fields);
+        query.multiselect(columns(selected, beer)).where(beer.get("id").in(ids));
+
+        return toDtos(selected, entityManager.createQuery(query).getResultList());
+    }
+
+    private long count(BeerStyle beerStyle) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Beer> beer = query.from(Beer.class);
+
+        query.select(cb.count(beer));
+        if (beerStyle != null) {
+            query.where(cb.equal(beer.get("beerStyle"), beerStyle));
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    //The id is always selected, callers need it to put rows in order
+    private static List<BeerField> selection(Set<BeerField> fields) {
+        EnumSet<BeerField> selected = EnumSet.of(BeerField.ID);
+        selected.addAll(fields);
+        return new ArrayList<>(selected);
+    }
+
+    private static List<Selection<?>> columns(List<BeerField> selected, Root<Beer> beer) {
+        return selected.stream()
+                .<Selection<?>>map(field -> beer.get(field.getProperty()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<BeerDTO> toDtos(List<BeerField> selected, List<Tuple> rows) {
+        List<BeerDTO> beers = new ArrayList<>(rows.size());
+
+        for (Tuple row : rows) {
+            BeerDTO beerDTO = BeerDTO.builder().build();
+            for (int i = 0; i < selected.size(); i++) {
+                selected.get(i).set(beerDTO, row.get(i));
+            }
+            beers.add(beerDTO);
+        }
+        return beers;
+    }
+}
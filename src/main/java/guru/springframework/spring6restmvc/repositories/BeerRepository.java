@@ -1,14 +1,67 @@
 package guru.springframework.spring6restmvc.repositories;
 
 import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerDTO;
 import guru.springframework.spring6restmvc.model.BeerStyle;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface BeerRepository extends JpaRepository<Beer, UUID> {
+public interface BeerRepository extends JpaRepository<Beer, UUID>, BeerProjectionRepository, BeerWriteRepository {
+
+    //Constructor expression for the DTO projections: the listings select these columns straight into BeerDTO,
+    //no managed entities, no dirty checking snapshots, no lazy collections
+    String BEER_DTO = "new guru.springframework.spring6restmvc.model.BeerDTO(b.id, b.version, b.beerName, " +
+            "b.beerStyle, b.upc, b.quantityOnHand, b.price, b.createdDate, b.updateDate)";
+
+    //Version only, enough to validate an ETag without loading the entity
+    @Query("select b.version from Beer b where b.id = :id")
+    Optional<Integer> findVersionById(@Param("id") UUID id);
+
+    long countByIdIn(Collection<UUID> ids);
+
+    //One DELETE, where deleteById would load the beer first. Hibernate also clears the beer's category links
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Beer b where b.id = :id")
+    int deleteRowById(@Param("id") UUID id);
+
+    //Order allocation: one conditional UPDATE, so concurrent orders for the same beer can't oversell and never retry on
+    //an optimistic lock. Returns 0 when the stock is short. The version is bumped, ETags of the beer change with its stock
+    @Transactional
+    @Modifying
+    @Query("update Beer b set b.quantityOnHand = b.quantityOnHand - :quantity, b.version = b.version + 1 " +
+            "where b.id = :id and b.quantityOnHand >= :quantity")
+    int allocate(@Param("id") UUID id, @Param("quantity") int quantity);
+
+    //Puts allocated stock back
+    @Transactional
+    @Modifying
+    @Query("update Beer b set b.quantityOnHand = b.quantityOnHand + :quantity, b.version = b.version + 1 " +
+            "where b.id = :id")
+    int release(@Param("id") UUID id, @Param("quantity") int quantity);
+
+    //Write-behind of the inventory ledger, which has already made sure the stock is there
+    @Modifying
+    @Query("update Beer b set b.quantityOnHand = coalesce(b.quantityOnHand, 0) - :quantity, b.version = b.version + 1 " +
+            "where b.id = :id")
+    int consume(@Param("id") UUID id, @Param("quantity") int quantity);
+
+    @Query("select b.id as id, b.quantityOnHand as quantityOnHand from Beer b where b.id in :ids")
+    List<BeerStockView> findStockByIdIn(@Param("ids") Collection<UUID> ids);
 
     Page<Beer> findAllByBeerNameIsLikeIgnoreCase(String beerName, Pageable pageable);
 
@@ -16,4 +69,138 @@ public interface BeerRepository extends JpaRepository<Beer, UUID> {
 
     Page<Beer> findAllByBeerNameIsLikeIgnoreCaseAndBeerStyle(String beerName, BeerStyle beerStyle, Pageable pageable);
 
+    @Query(value = "select " + BEER_DTO + " from Beer b", countQuery = "select count(b) from Beer b")
+    Page<BeerDTO> findAllDtos(Pageable pageable);
+
+    @Query(value = "select " + BEER_DTO + " from Beer b where b.beerStyle = :beerStyle",
+            countQuery = "select count(b) from Beer b where b.beerStyle = :beerStyle")
+    Page<BeerDTO> findAllDtosByBeerStyle(@Param("beerStyle") BeerStyle beerStyle, Pageable pageable);
+
+    @Query(value = "select " + BEER_DTO + " from Beer b where upper(b.beerName) like upper(:beerName)",
+            countQuery = "select count(b) from Beer b where upper(b.beerName) like upper(:beerName)")
+    Page<BeerDTO> findAllDtosByBeerNameLike(@Param("beerName") String beerName, Pageable pageable);
+
+    @Query(value = "select " + BEER_DTO + " from Beer b where upper(b.beerName) like upper(:beerName) " +
+            "and b.beerStyle = :beerStyle",
+            countQuery = "select count(b) from Beer b where upper(b.beerName) like upper(:beerName) " +
+                    "and b.beerStyle = :beerStyle")
+    Page<BeerDTO> findAllDtosByBeerNameLikeAndBeerStyle(@Param("beerName") String beerName,
+                                                       @Param("beerStyle") BeerStyle beerStyle, Pageable pageable);
+
+    //Listing by category, served by beer_category_category_beer_idx from V11__beer-category-index.sql. beerName is a
+    //LIKE pattern, "%" for all names
+    @Query(value = "select " + BEER_DTO + " from Beer b join b.categories c where c.id = :categoryId " +
+            "and upper(b.beerName) like upper(:beerName)",
+            countQuery = "select count(b) from Beer b join b.categories c where c.id = :categoryId " +
+                    "and upper(b.beerName) like upper(:beerName)")
+    Page<BeerDTO> findAllDtosByCategoryIdAndBeerNameLike(@Param("categoryId") UUID categoryId,
+                                                         @Param("beerName") String beerName, Pageable pageable);
+
+    @Query(value = "select " + BEER_DTO + " from Beer b join b.categories c where c.id = :categoryId " +
+            "and upper(b.beerName) like upper(:beerName) and b.beerStyle = :beerStyle",
+            countQuery = "select count(b) from Beer b join b.categories c where c.id = :categoryId " +
+                    "and upper(b.beerName) like upper(:beerName) and b.beerStyle = :beerStyle")
+    Page<BeerDTO> findAllDtosByCategoryIdAndBeerNameLikeAndBeerStyle(@Param("categoryId") UUID categoryId,
+                                                                     @Param("beerName") String beerName,
+                                                                     @Param("beerStyle") BeerStyle beerStyle,
+                                                                     Pageable pageable);
+
+    //Ids only, for the name search when the page is loaded with a field selection
+    @Query(value = "select b.id from Beer b where upper(b.beerName) like upper(:beerName)",
+            countQuery = "select count(b) from Beer b where upper(b.beerName) like upper(:beerName)")
+    Page<UUID> findIdsByBeerNameLike(@Param("beerName") String beerName, Pageable pageable);
+
+    @Query(value = "select b.id from Beer b where upper(b.beerName) like upper(:beerName) and b.beerStyle = :beerStyle",
+            countQuery = "select count(b) from Beer b where upper(b.beerName) like upper(:beerName) " +
+                    "and b.beerStyle = :beerStyle")
+    Page<UUID> findIdsByBeerNameLikeAndBeerStyle(@Param("beerName") String beerName,
+                                                 @Param("beerStyle") BeerStyle beerStyle, Pageable pageable);
+
+    //Unordered, callers put the rows back in the order of their ids
+    @Query("select " + BEER_DTO + " from Beer b where b.id in :ids")
+    List<BeerDTO> findAllDtosByIdIn(@Param("ids") Collection<UUID> ids);
+
+    //Slice variants of the listing queries: Spring Data fetches pageSize + 1 rows to work out hasNext and skips
+    //the count(*) that a Page needs for its totals
+    @Query("select " + BEER_DTO + " from Beer b")
+    Slice<BeerDTO> findSliceDtos(Pageable pageable);
+
+    @Query("select " + BEER_DTO + " from Beer b where b.beerStyle = :beerStyle")
+    Slice<BeerDTO> findSliceDtosByBeerStyle(@Param("beerStyle") BeerStyle beerStyle, Pageable pageable);
+
+
+    //Keyset (seek) queries: continue after the (beerName, id) of the last row instead of using OFFSET.
+    //They return a Slice, so Spring Data fetches pageSize + 1 rows and never runs a count query.
+    //(beerName, id) > (:beerName, :id), written with a plain lower bound on beerName so that it is a range scan of
+    //beer_name_id_idx. As a top level OR it was a full scan on H2
+    String AFTER_CURSOR = "b.beerName >= :beerName and (b.beerName > :beerName or b.id > :id)";
+
+    @Query("select " + BEER_DTO + " from Beer b where " + AFTER_CURSOR + " " +
+            "order by b.beerName, b.id")
+    Slice<BeerDTO> findAllAfter(@Param("beerName") String beerName, @Param("id") UUID id, Pageable pageable);
+
+    @Query("select " + BEER_DTO + " from Beer b where b.beerStyle = :beerStyle " +
+            "and " + AFTER_CURSOR + " " +
+            "order by b.beerName, b.id")
+    Slice<BeerDTO> findAllByBeerStyleAfter(@Param("beerStyle") BeerStyle beerStyle, @Param("beerName") String beerName,
+                                        @Param("id") UUID id, Pageable pageable);
+
+    @Query("select " + BEER_DTO + " from Beer b where upper(b.beerName) like upper(:nameLike) " +
+            "and " + AFTER_CURSOR + " " +
+            "order by b.beerName, b.id")
+    Slice<BeerDTO> findAllByBeerNameLikeAfter(@Param("nameLike") String nameLike, @Param("beerName") String beerName,
+                                           @Param("id") UUID id, Pageable pageable);
+
+    @Query("select " + BEER_DTO + " from Beer b where upper(b.beerName) like upper(:nameLike) and b.beerStyle = :beerStyle " +
+            "and " + AFTER_CURSOR + " " +
+            "order by b.beerName, b.id")
+    Slice<BeerDTO> findAllByBeerNameLikeAndBeerStyleAfter(@Param("nameLike") String nameLike,
+                                                       @Param("beerStyle") BeerStyle beerStyle,
+                                                       @Param("beerName") String beerName,
+                                                       @Param("id") UUID id, Pageable pageable);
+
+    //Export (BeerExportService): forward-only streams in listing order, EXPORT_FETCH_SIZE rows per round trip, read-only
+    //entities. Consume them inside a transaction and close them
+    int EXPORT_FETCH_SIZE = 500;
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select b from Beer b order by b.beerName, b.id")
+    Stream<Beer> streamAll();
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select b from Beer b where b.beerStyle = :beerStyle order by b.beerName, b.id")
+    Stream<Beer> streamAllByBeerStyle(@Param("beerStyle") BeerStyle beerStyle);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select b from Beer b where upper(b.beerName) like upper(:beerName) order by b.beerName, b.id")
+    Stream<Beer> streamAllByBeerNameLike(@Param("beerName") String beerName);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select b from Beer b where upper(b.beerName) like upper(:beerName) and b.beerStyle = :beerStyle " +
+            "order by b.beerName, b.id")
+    Stream<Beer> streamAllByBeerNameLikeAndBeerStyle(@Param("beerName") String beerName,
+                                                    @Param("beerStyle") BeerStyle beerStyle);
+
+    //Loads the in-process name search index (TrigramBeerNameSearch)
+    @Query("select b.id as id, b.beerName as beerName, b.beerStyle as beerStyle from Beer b")
+    List<BeerSearchView> findAllSearchViews();
+
+    //MySQL only, served by the FULLTEXT index from V7__beer-name-fulltext-index.sql. Ids only, the page is then
+    //loaded with findAllDtosByIdIn. The ids come back as stored, String or byte[] depending on the id storage mode
+    @Query(value = "select id from beer where match(beer_name) against (:query in boolean mode) order by beer_name, id",
+            countQuery = "select count(*) from beer where match(beer_name) against (:query in boolean mode)",
+            nativeQuery = true)
+    Page<Object> searchIdsByBeerName(@Param("query") String query, Pageable pageable);
+
+    @Query(value = "select id from beer where match(beer_name) against (:query in boolean mode) " +
+            "and beer_style = :beerStyle order by beer_name, id",
+            countQuery = "select count(*) from beer where match(beer_name) against (:query in boolean mode) " +
+                    "and beer_style = :beerStyle",
+            nativeQuery = true)
+    Page<Object> searchIdsByBeerNameAndBeerStyle(@Param("query") String query, @Param("beerStyle") int beerStyle,
+                                                 Pageable pageable);
 }
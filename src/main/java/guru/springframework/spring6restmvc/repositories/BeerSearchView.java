@@ -0,0 +1,15 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.model.BeerStyle;
+
+import java.util.UUID;
+
+//Just the columns the in-process name index needs
+public interface BeerSearchView {
+
+    UUID getId();
+
+    String getBeerName();
+
+    BeerStyle getBeerStyle();
+}
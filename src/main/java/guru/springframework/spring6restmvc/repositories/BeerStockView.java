@@ -0,0 +1,11 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import java.util.UUID;
+
+//Stock only, for the inventory ledger's reconciliation
+public interface BeerStockView {
+
+    UUID getId();
+
+    Integer getQuantityOnHand();
+}
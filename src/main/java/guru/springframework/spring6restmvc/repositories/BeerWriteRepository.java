@@ -0,0 +1,20 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.model.BeerField;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+//Conditional writes without loading the entity: one UPDATE, the affected row count says whether it happened
+public interface BeerWriteRepository {
+
+    /**
+     * UPDATE beer SET the given fields, version = version + 1, update_date = now WHERE id = ?, and with
+     * expectedVersions AND version IN (...). Returns the number of rows written, 0 or 1.
+     *
+     * Runs as bulk JPQL: the persistence context is flushed before and cleared after, and Hibernate events
+     * (the trigram index listeners) don't see it.
+     */
+    int updateFields(UUID id, Collection<Integer> expectedVersions, Map<BeerField, Object> values);
+}
@@ -0,0 +1,43 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+//Criteria implementation of BeerWriteRepository, picked up by Spring Data through the Impl suffix
+@RequiredArgsConstructor
+class BeerWriteRepositoryImpl implements BeerWriteRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public int updateFields(UUID id, Collection<Integer> expectedVersions, Map<BeerField, Object> values) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Beer> update = cb.createCriteriaUpdate(Beer.class);
+        Root<Beer> beer = update.from(Beer.class);
+
+        //BeerField properties are the entity attribute names
+        values.forEach((field, value) -> update.set(beer.get(field.getProperty()), value));
+        update.set(beer.<Integer>get("version"), cb.sum(beer.get("version"), 1));
+        update.set(beer.<LocalDateTime>get("updateDate"), LocalDateTime.now()); //@UpdateTimestamp is skipped by bulk writes
+
+        Predicate byId = cb.equal(beer.get("id"), id);
+        update.where(expectedVersions == null ? byId : cb.and(byId, beer.get("version").in(expectedVersions)));
+
+        entityManager.flush();
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear(); //a Beer loaded earlier in the transaction is stale now
+
+        return updated;
+    }
+}
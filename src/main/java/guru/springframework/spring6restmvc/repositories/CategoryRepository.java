@@ -1,9 +1,35 @@
 package guru.springframework.spring6restmvc.repositories;
 
 import guru.springframework.spring6restmvc.entities.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface CategoryRepository extends JpaRepository<Category, UUID> {
+
+    String CATALOG_CACHE_REGION = "category-catalog";
+
+    //The whole catalog from the query cache: the cached result is the ids, the categories come from the entity region.
+    //Any write to the category table invalidates it
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CATALOG_CACHE_REGION)})
+    @Query("select c from Category c order by c.description")
+    List<Category> findCatalog();
+
+    //Unlinks a category from all its beers before it is deleted. After a native statement Hibernate only invalidates the
+    //declared table spaces, and it finds cached collections through their element entity: the category space clears
+    //the category region and the cached categories of every beer (Beer.categories). Coarse, but deletes are rare, and
+    //without any space Hibernate would clear every region
+    @Modifying
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "beer_category"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category")})
+    @Query(value = "delete from beer_category where category_id = :categoryId", nativeQuery = true)
+    int deleteBeerLinks(@Param("categoryId") UUID categoryId);
 }
@@ -1,9 +1,55 @@
 package guru.springframework.spring6restmvc.repositories;
 
 import guru.springframework.spring6restmvc.entities.Customer;
+import guru.springframework.spring6restmvc.model.CustomerDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
+
+    //Constructor expression for the DTO projections, see BeerRepository.BEER_DTO
+    String CUSTOMER_DTO = "new guru.springframework.spring6restmvc.model.CustomerDTO(c.name, c.id, c.version, " +
+            "c.createdDate, c.updateDate)";
+
+    //Version only, enough to validate an ETag without loading the entity
+    @Query("select c.version from Customer c where c.id = :id")
+    Optional<Integer> findVersionById(@Param("id") UUID id);
+
+    //Conditional writes in one statement each, the affected row count says whether the customer was written. They set
+    //updateDate themselves like the beer writes, the entity's dates are never touched by a bulk UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Customer c set c.name = :name, c.updateDate = local datetime, c.version = c.version + 1 " +
+            "where c.id = :id")
+    int updateName(@Param("id") UUID id, @Param("name") String name);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Customer c set c.name = :name, c.updateDate = local datetime, c.version = c.version + 1 " +
+            "where c.id = :id and c.version in :versions")
+    int updateNameIfVersion(@Param("id") UUID id, @Param("name") String name,
+                            @Param("versions") Collection<Integer> versions);
+
+    //One DELETE, where deleteById would load the customer first
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Customer c where c.id = :id")
+    int deleteRowById(@Param("id") UUID id);
+
+    @Query("select " + CUSTOMER_DTO + " from Customer c")
+    List<CustomerDTO> findAllDtos();
+
+    @Query(value = "select " + CUSTOMER_DTO + " from Customer c", countQuery = "select count(c) from Customer c")
+    Page<CustomerDTO> findAllDtos(Pageable pageable);
+
+    //No count query, hasNext comes from fetching one extra row
+    @Query("select " + CUSTOMER_DTO + " from Customer c")
+    Slice<CustomerDTO> findSliceDtos(Pageable pageable);
 }
@@ -0,0 +1,19 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.entities.InventoryReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface InventoryReservationRepository extends JpaRepository<InventoryReservation, UUID> {
+
+    //Oldest first, one write-behind batch
+    List<InventoryReservation> findAllByOrderByCreatedDate(Pageable pageable);
+
+    @Query("select coalesce(sum(r.quantity), 0) from InventoryReservation r where r.beerId = :beerId")
+    long sumQuantityByBeerId(@Param("beerId") UUID beerId);
+}
@@ -0,0 +1,13 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerBulkResultDTO;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+
+import java.util.Iterator;
+import java.util.List;
+
+public interface BeerBulkService {
+
+    //Beers without an id are created, beers with an id update the existing beer. A null item is reported as INVALID
+    List<BeerBulkResultDTO> saveBeers(Iterator<BeerDTO> beers);
+}
@@ -0,0 +1,202 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.mappers.BeerMapper;
+import guru.springframework.spring6restmvc.model.BeerBulkResultDTO;
+import guru.springframework.spring6restmvc.model.BeerBulkResultDTO.Status;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes beers in chunks, one transaction per chunk. Inside a chunk every insert and update is only flushed
+ * at the end, so Hibernate sends them as JDBC batches (hibernate.jdbc.batch_size, and on MySQL the driver
+ * rewrites each batch into multi-row statements). The persistence context is cleared after each chunk to
+ * keep memory flat for large requests.
+ *
+ * Chunks commit independently. If a chunk fails it is retried one item per transaction, so a single bad
+ * row only fails itself. An update whose version is no longer the current one is left out as a CONFLICT.
+ */
+@Slf4j
+@Service
+public class BeerBulkServiceJPA implements BeerBulkService {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final BeerMapper beerMapper;
+    private final BeerDtoCache beerDtoCache;
+    private final CatalogGeneration catalogGeneration;
+    private final int chunkSize;
+
+    public BeerBulkServiceJPA(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                              Validator validator, BeerMapper beerMapper, BeerDtoCache beerDtoCache,
+                              CatalogGeneration catalogGeneration,
+                              @Value("${beer.bulk.chunk-size:500}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.beerMapper = beerMapper;
+        this.beerDtoCache = beerDtoCache;
+        this.catalogGeneration = catalogGeneration;
+        this.chunkSize = chunkSize;
+    }
+
+    private record Item(int index, BeerDTO beer) {}
+
+    @Override
+    public List<BeerBulkResultDTO> saveBeers(Iterator<BeerDTO> beers) {
+        List<BeerBulkResultDTO> results = new ArrayList<>();
+        List<Item> chunk = new ArrayList<>(chunkSize);
+
+        int index = 0;
+        while (beers.hasNext()) {
+            BeerDTO beer = beers.next();
+            List<Map<String, String>> errors = validate(beer);
+
+            if (errors.isEmpty()) {
+                chunk.add(new Item(index, beer));
+            } else {
+                results.add(result(index, Status.INVALID, null, errors));
+            }
+            if (chunk.size() == chunkSize) {
+                results.addAll(writeChunk(chunk));
+                chunk.clear();
+            }
+            index++;
+        }
+        results.addAll(writeChunk(chunk));
+
+        results.sort(Comparator.comparingInt(BeerBulkResultDTO::getIndex));
+        return results;
+    }
+
+    private List<BeerBulkResultDTO> writeChunk(List<Item> chunk) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return transactionTemplate.execute(status -> write(chunk));
+        } catch (RuntimeException e) {
+            log.debug("Bulk chunk of " + chunk.size() + " beers failed, retrying item by item", e);
+
+            return chunk.stream().map(this::writeSingle).collect(Collectors.toList());
+        }
+    }
+
+    private BeerBulkResultDTO writeSingle(Item item) {
+        try {
+            return transactionTemplate.execute(status -> write(List.of(item))).get(0);
+        } catch (RuntimeException e) {
+            return result(item.index(), Status.FAILED, item.beer().getId(),
+                    List.of(Map.of("beer", NestedExceptionUtils.getMostSpecificCause(e).getMessage())));
+        }
+    }
+
+    //Runs inside the chunk transaction
+    private List<BeerBulkResultDTO> write(List<Item> items) {
+        List<UUID> ids = items.stream()
+                .map(item -> item.beer().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        //One select for all the beers this chunk updates
+        Map<UUID, Beer> existing = ids.isEmpty() ? Map.of() : entityManager
+                .createQuery("select b from Beer b where b.id in :ids", Beer.class)
+                .setParameter("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(Beer::getId, Function.identity()));
+
+        List<Beer> written = new ArrayList<>(items.size());
+        List<Status> statuses = new ArrayList<>(items.size());
+
+        for (Item item : items) {
+            BeerDTO beer = item.beer();
+
+            if (beer.getId() == null) {
+                Beer entity = beerMapper.beerDtoToBeer(beer);
+                entity.setVersion(null);
+                entity.setCategories(null); //a new beer has none, an empty set would still soft lock beer-categories
+                entityManager.persist(entity);
+                written.add(entity);
+                statuses.add(Status.CREATED);
+            } else if (existing.containsKey(beer.getId())) {
+                Beer entity = existing.get(beer.getId());
+
+                //Same rule as a single update: a version in the item must still be the current one
+                if (beer.getVersion() != null && !beer.getVersion().equals(entity.getVersion())) {
+                    written.add(entity);
+                    statuses.add(Status.CONFLICT);
+                    continue;
+                }
+                entity.setBeerName(beer.getBeerName());
+                entity.setBeerStyle(beer.getBeerStyle());
+                entity.setQuantityOnHand(beer.getQuantityOnHand());
+                entity.setPrice(beer.getPrice());
+                entity.setUpc(beer.getUpc());
+                written.add(entity);
+                statuses.add(Status.UPDATED);
+            } else {
+                written.add(null);
+                statuses.add(Status.NOT_FOUND);
+            }
+        }
+
+        entityManager.flush(); //the whole chunk goes out here as JDBC batches
+
+        List<BeerBulkResultDTO> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Beer entity = written.get(i);
+
+            if (entity == null) {
+                results.add(result(items.get(i).index(), Status.NOT_FOUND, items.get(i).beer().getId(), null));
+                continue;
+            }
+            if (statuses.get(i) == Status.UPDATED) {
+                beerDtoCache.put(beerMapper.beerToBeerDto(entity));
+            }
+            BeerBulkResultDTO result = result(items.get(i).index(), statuses.get(i), entity.getId(), null);
+            result.setVersion(entity.getVersion());
+            results.add(result);
+        }
+
+        entityManager.clear();
+        catalogGeneration.bump();
+        return results;
+    }
+
+    private List<Map<String, String>> validate(BeerDTO beer) {
+        if (beer == null) {
+            return List.of(Map.of("beer", "could not be read"));
+        }
+        //The entity carries constraints the DTO doesn't (beerName length), check both before anything is written
+        Set<ConstraintViolation<?>> violations = new LinkedHashSet<>(validator.validate(beer));
+        if (violations.isEmpty()) {
+            violations.addAll(validator.validate(beerMapper.beerDtoToBeer(beer)));
+        }
+
+        return violations.stream()
+                .map(violation -> Map.of(violation.getPropertyPath().toString(), violation.getMessage()))
+                .collect(Collectors.toList());
+    }
+
+    private static BeerBulkResultDTO result(int index, Status status, UUID id, List<Map<String, String>> errors) {
+        return BeerBulkResultDTO.builder()
+                .index(index)
+                .status(status)
+                .id(id)
+                .errors(errors)
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerCsvImportResultDTO;
+
+import java.io.Reader;
+import java.nio.file.Path;
+
+public interface BeerCsvImportService {
+
+    //Imports every row of a beers.csv style file, the caller closes the reader
+    BeerCsvImportResultDTO importCsv(Reader reader);
+
+    //Same import, with line aligned partitions of the file parsed and written concurrently
+    BeerCsvImportResultDTO importCsvParallel(Path csvFile);
+}
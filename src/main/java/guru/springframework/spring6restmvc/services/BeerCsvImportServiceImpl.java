@@ -0,0 +1,321 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerCSVRecord;
+import guru.springframework.spring6restmvc.model.BeerCsvImportResultDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streaming CSV import in two stages connected by a bounded queue:
+ *
+ * - a parser thread reads the CSV one record at a time and maps each record to a Beer (style mapping included),
+ *   from a pool of beer.import.max-concurrent threads that is shut down with the context,
+ * - the calling thread takes the beers off the queue and persists them in chunks, one transaction per chunk,
+ *   flushed as JDBC batches and cleared afterwards.
+ *
+ * Memory stays constant whatever the size of the input: at most queue-capacity beers wait on the queue and one
+ * chunk is in the persistence context. When the writer is slower the parser blocks on the full queue.
+ * Chunks commit independently, so a failed import keeps the chunks written before the failure. An interrupted
+ * import (context shutdown) stops without writing the partial chunk it holds.
+ *
+ * The parallel mode splits a file into line aligned byte ranges ({@link CsvPartitions}) and imports them on
+ * beer.import.parallelism worker threads. Each worker parses, maps and writes its own range, so every worker
+ * holds its own Hikari connection: keep the parallelism below the pool size.
+ */
+@Slf4j
+@Service
+public class BeerCsvImportServiceImpl implements BeerCsvImportService, DisposableBean {
+
+    //Marks the end of the input on the queue
+    private static final Beer END = new Beer();
+
+    private final BeerCsvService beerCsvService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogGeneration catalogGeneration;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final int parallelism;
+    private final ExecutorService parsers;
+
+    //Progress is logged each time another PROGRESS_INTERVAL rows have been committed
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    private record Counts(long rowsRead, long rowsImported, long rowsSkipped) {}
+
+    public BeerCsvImportServiceImpl(BeerCsvService beerCsvService, EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager, CatalogGeneration catalogGeneration,
+                                    @Value("${beer.import.chunk-size:1000}") int chunkSize,
+                                    @Value("${beer.import.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${beer.import.parallelism:4}") int parallelism,
+                                    @Value("${beer.import.max-concurrent:4}") int maxConcurrent) {
+        this.beerCsvService = beerCsvService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogGeneration = catalogGeneration;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.parallelism = parallelism;
+
+        AtomicInteger parserNumber = new AtomicInteger();
+        this.parsers = new ThreadPoolExecutor(0, maxConcurrent, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread parser = new Thread(runnable, "beer-csv-parser-" + parserNumber.incrementAndGet());
+            parser.setDaemon(true);
+            return parser;
+        });
+    }
+
+    @Override
+    public BeerCsvImportResultDTO importCsv(Reader reader) {
+        long start = System.nanoTime();
+
+        BlockingQueue<Beer> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong rowsRead = new AtomicLong();
+        AtomicLong rowsSkipped = new AtomicLong();
+        AtomicReference<RuntimeException> parseFailure = new AtomicReference<>();
+
+        Future<?> parser = parsers.submit(() -> parse(reader, queue, rowsRead, rowsSkipped, parseFailure));
+
+        long rowsImported = 0;
+        List<Beer> chunk = new ArrayList<>(chunkSize);
+        try {
+            Beer beer;
+            while ((beer = queue.take()) != END) {
+                chunk.add(beer);
+
+                if (chunk.size() == chunkSize) {
+                    rowsImported += write(chunk);
+                    chunk.clear();
+                }
+            }
+            if (parseFailure.get() != null) {
+                throw parseFailure.get();
+            }
+            rowsImported += write(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Beer CSV import interrupted", e);
+        } finally {
+            parser.cancel(true); //unblocks the parser if the writer stopped early
+        }
+
+        return result(new Counts(rowsRead.get(), rowsImported, rowsSkipped.get()), start);
+    }
+
+    @Override
+    public BeerCsvImportResultDTO importCsvParallel(Path csvFile) {
+        long start = System.nanoTime();
+        AtomicLong committed = new AtomicLong();
+        AtomicInteger workerNumber = new AtomicInteger();
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread worker = new Thread(runnable, "beer-csv-import-" + workerNumber.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            byte[] header = CsvPartitions.header(channel);
+
+            List<Future<Counts>> partitions = new ArrayList<>();
+            for (CsvPartitions.Partition partition : CsvPartitions.split(channel, header.length, parallelism)) {
+                partitions.add(workers.submit(() -> importPartition(channel, header, partition, committed, start)));
+            }
+
+            long rowsRead = 0, rowsImported = 0, rowsSkipped = 0;
+            for (Future<Counts> partition : partitions) {
+                Counts counts = partition.get();
+                rowsRead += counts.rowsRead();
+                rowsImported += counts.rowsImported();
+                rowsSkipped += counts.rowsSkipped();
+            }
+            return result(new Counts(rowsRead, rowsImported, rowsSkipped), start);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Beer CSV import interrupted", e);
+        } finally {
+            workers.shutdownNow(); //stops the other partitions when one of them failed
+        }
+    }
+
+    //Worker thread: parse, map and write one partition
+    private Counts importPartition(FileChannel channel, byte[] header, CsvPartitions.Partition partition,
+                                   AtomicLong committed, long start) throws IOException {
+        long rowsRead = 0, rowsImported = 0, rowsSkipped = 0;
+        List<Beer> chunk = new ArrayList<>(chunkSize);
+
+        try (Reader reader = new InputStreamReader(CsvPartitions.open(channel, header, partition), StandardCharsets.UTF_8)) {
+            BeerCsvService.CsvRecords records = beerCsvService.iterateCSV(reader);
+
+            while (records.hasNext() && !Thread.currentThread().isInterrupted()) {
+                rowsRead++;
+                Beer beer = toBeer(records.next());
+
+                if (beer == null) {
+                    rowsSkipped++;
+                    continue;
+                }
+                chunk.add(beer);
+
+                if (chunk.size() == chunkSize) {
+                    rowsImported += write(chunk);
+                    reportProgress(committed.addAndGet(chunk.size()), chunk.size(), start);
+                    chunk.clear();
+                }
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return new Counts(rowsRead, rowsImported, rowsSkipped); //stopped by shutdownNow, the import has failed
+            }
+            rowsImported += write(chunk);
+            reportProgress(committed.addAndGet(chunk.size()), chunk.size(), start);
+
+            rowsRead += records.malformedLines();
+            rowsSkipped += records.malformedLines();
+        }
+        return new Counts(rowsRead, rowsImported, rowsSkipped);
+    }
+
+    private void reportProgress(long committed, long added, long start) {
+        if (committed / PROGRESS_INTERVAL != (committed - added) / PROGRESS_INTERVAL) {
+            log.debug("Imported " + committed + " beers so far, " + rowsPerSecond(committed, start) + " rows/sec");
+        }
+    }
+
+    private BeerCsvImportResultDTO result(Counts counts, long start) {
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        long rowsPerSecond = rowsPerSecond(counts.rowsImported(), start);
+
+        log.debug("Imported " + counts.rowsImported() + " beers in " + elapsedMillis + " ms (" + rowsPerSecond + " rows/sec)");
+
+        return BeerCsvImportResultDTO.builder()
+                .rowsRead(counts.rowsRead())
+                .rowsImported(counts.rowsImported())
+                .rowsSkipped(counts.rowsSkipped())
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(rowsPerSecond)
+                .build();
+    }
+
+    private static long rowsPerSecond(long rows, long start) {
+        return rows * 1_000_000_000L / Math.max(System.nanoTime() - start, 1);
+    }
+
+    //Parser thread: parse and map, the queue blocks it whenever the writer falls behind
+    private void parse(Reader reader, BlockingQueue<Beer> queue, AtomicLong rowsRead, AtomicLong rowsSkipped,
+                       AtomicReference<RuntimeException> parseFailure) {
+        try {
+            BeerCsvService.CsvRecords records = beerCsvService.iterateCSV(reader);
+
+            while (records.hasNext() && !parsers.isShutdown()) {
+                rowsRead.incrementAndGet();
+                Beer beer = toBeer(records.next());
+
+                if (beer == null) {
+                    rowsSkipped.incrementAndGet();
+                } else {
+                    queue.put(beer);
+                }
+            }
+            if (parsers.isShutdown()) {
+                throw new InterruptedException(); //a reader may swallow the interrupt and only end the input early
+            }
+            rowsRead.addAndGet(records.malformedLines());
+            rowsSkipped.addAndGet(records.malformedLines());
+            queue.put(END);
+        } catch (InterruptedException e) {
+            //The writer has given up, or the context is closing and the writer must not commit what is left
+            stop(queue, parseFailure, new IllegalStateException("Beer CSV import interrupted", e));
+        } catch (RuntimeException e) {
+            stop(queue, parseFailure, e);
+        }
+    }
+
+    private static void stop(BlockingQueue<Beer> queue, AtomicReference<RuntimeException> parseFailure,
+                             RuntimeException failure) {
+        parseFailure.set(failure);
+        queue.clear(); //the import fails, nothing queued is written
+        queue.offer(END); //only the parser puts, so the cleared queue has room
+    }
+
+    //Stops the running parsers when the context closes, their imports fail instead of committing a partial chunk
+    @Override
+    public void destroy() {
+        parsers.shutdownNow();
+    }
+
+    private int write(List<Beer> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            chunk.forEach(entityManager::persist);
+            entityManager.flush(); //the whole chunk goes out here as JDBC batches
+            entityManager.clear();
+            catalogGeneration.bump();
+        });
+        return chunk.size();
+    }
+
+    //Rows the entity constraints would reject are skipped here instead of failing a whole chunk
+    public static Beer toBeer(BeerCSVRecord beerCSVRecord) {
+        if (StringUtils.isBlank(beerCSVRecord.getBeer()) || beerCSVRecord.getRow() == null) {
+            return null;
+        }
+        return Beer.builder()
+                .beerName(StringUtils.abbreviate(beerCSVRecord.getBeer(), 50))
+                .price(BigDecimal.TEN)
+                .beerStyle(beerStyle(beerCSVRecord.getStyle()))
+                .upc(beerCSVRecord.getRow().toString())
+                .quantityOnHand(beerCSVRecord.getCount())
+                .categories(null) //no collection to recreate, so no soft lock in the beer-categories region per row
+                .build();
+    }
+
+    public static BeerStyle beerStyle(String style) {
+        if (style == null) {
+            return BeerStyle.PILSNER;
+        }
+        return switch (style){
+            case "American Pale Lager" -> BeerStyle.LAGER;
+            case "American Pale Ale (APA)", "American Black Ale", "Belgian Dark Ale", "American Blonde Ale" ->
+                    BeerStyle.ALE;
+            case "American IPA", "American Double / Imperial IPA", "Belgian IPA" -> BeerStyle.IPA;
+            case "American Porter" -> BeerStyle.PORTER;
+            case "Oatmeal Stout", "American Stout" -> BeerStyle.STOUT;
+            case "Saison / Farmhouse Ale" -> BeerStyle.SAISON;
+            case "Fruit / Vegetable Beer", "Winter Warmer", "Berliner Weissbier" -> BeerStyle.WHEAT;
+            case "English Pale Ale" -> BeerStyle.PALE_ALE;
+            default -> BeerStyle.PILSNER;
+        };
+    }
+}
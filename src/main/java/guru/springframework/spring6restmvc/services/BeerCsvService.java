@@ -3,8 +3,18 @@ package guru.springframework.spring6restmvc.services;
 import guru.springframework.spring6restmvc.model.BeerCSVRecord;
 
 import java.io.File;
+import java.io.Reader;
+import java.util.Iterator;
 import java.util.List;
 
 public interface BeerCsvService {
     List<BeerCSVRecord> convertCSV(File csvFile);
+
+    //Parses one record per next() call, nothing is buffered beyond the current line. The caller closes the reader
+    CsvRecords iterateCSV(Reader reader);
+
+    interface CsvRecords extends Iterator<BeerCSVRecord> {
+        //Lines that could not be parsed so far, the iteration leaves them out
+        long malformedLines();
+    }
 }
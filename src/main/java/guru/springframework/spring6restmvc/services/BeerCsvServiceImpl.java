@@ -1,12 +1,12 @@
 package guru.springframework.spring6restmvc.services;
 
+import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
 import guru.springframework.spring6restmvc.model.BeerCSVRecord;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.*;
+import java.util.Iterator;
 import java.util.List;
 
 @Service
@@ -14,14 +14,40 @@ public class BeerCsvServiceImpl implements BeerCsvService {
     @Override
     public List<BeerCSVRecord> convertCSV(File csvFile) {
 
-        try {
-            List<BeerCSVRecord> beerCSVRecords = new CsvToBeanBuilder<BeerCSVRecord>(new FileReader(csvFile))
+        try (Reader reader = new FileReader(csvFile)) {
+            List<BeerCSVRecord> beerCSVRecords = new CsvToBeanBuilder<BeerCSVRecord>(reader)
                     .withType(BeerCSVRecord.class)
                     .build().parse();
 
             return beerCSVRecords;
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
+
+    @Override
+    public CsvRecords iterateCSV(Reader reader) {
+        CsvToBean<BeerCSVRecord> csvToBean = new CsvToBeanBuilder<BeerCSVRecord>(reader)
+                .withType(BeerCSVRecord.class)
+                .withThrowExceptions(false) //a malformed line is captured and skipped instead of ending the import
+                .build();
+        Iterator<BeerCSVRecord> records = csvToBean.iterator();
+
+        return new CsvRecords() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public BeerCSVRecord next() {
+                return records.next();
+            }
+
+            @Override
+            public long malformedLines() {
+                return csvToBean.getCapturedExceptions().size();
+            }
+        };
+    }
 }
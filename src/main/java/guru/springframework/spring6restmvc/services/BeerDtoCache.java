@@ -0,0 +1,62 @@
+package guru.springframework.spring6restmvc.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import guru.springframework.spring6restmvc.config.CacheConfig;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of ready to serialize BeerDTOs in front of the beer table.
+ *
+ * Loads go through Caffeine's atomic per-key compute, so concurrent misses for the same beer run one query,
+ * and an invalidation that races with a load waits for it and then removes the loaded value. Writes are
+ * applied only after the transaction commits. A put never replaces a cached DTO that has a higher @Version.
+ *
+ * BeerDTO is mutable, so the cache keeps its own copy and every caller gets a copy of it: a controller setting a
+ * field on the DTO it got must not change what the next request reads.
+ */
+@Component
+public class BeerDtoCache {
+
+    private final Cache<Object, Object> cache;
+
+    public BeerDtoCache(CacheManager cacheManager) {
+        CaffeineCache caffeineCache = (CaffeineCache) cacheManager.getCache(CacheConfig.BEER_CACHE);
+        this.cache = caffeineCache.getNativeCache();
+    }
+
+    //Misses are not cached, a beer created later must not be hidden by an earlier 404
+    public Optional<BeerDTO> get(UUID beerId, Function<UUID, Optional<BeerDTO>> loader) {
+        return Optional.ofNullable((BeerDTO) cache.get(beerId, key -> loader.apply(beerId).orElse(null)))
+                .map(BeerDtoCache::copy);
+    }
+
+    public Optional<BeerDTO> getIfPresent(UUID beerId) {
+        return Optional.ofNullable((BeerDTO) cache.getIfPresent(beerId)).map(BeerDtoCache::copy);
+    }
+
+    public void put(BeerDTO beerDTO) {
+        BeerDTO copy = copy(beerDTO); //as it is now, not as the caller may change it before the commit
+        TransactionCallbacks.afterCommit(() -> cache.asMap().merge(copy.getId(), copy,
+                (cached, updated) -> version(updated) >= version(cached) ? updated : cached));
+    }
+
+    public void evict(UUID beerId) {
+        TransactionCallbacks.afterCommit(() -> cache.invalidate(beerId));
+    }
+
+    private static BeerDTO copy(BeerDTO beerDTO) {
+        return beerDTO.toBuilder().build();
+    }
+
+    private static int version(Object beerDTO) {
+        Integer version = ((BeerDTO) beerDTO).getVersion();
+        return version == null ? -1 : version;
+    }
+}
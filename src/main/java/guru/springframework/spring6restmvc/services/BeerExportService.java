@@ -0,0 +1,13 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerExportFormat;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BeerExportService {
+
+    //Writes every beer matching the filters in beer name order and returns how many, the caller closes the stream
+    long exportBeers(String beerName, BeerStyle beerStyle, BeerExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,139 @@
+package guru.springframework.spring6restmvc.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.opencsv.CSVWriterBuilder;
+import com.opencsv.ICSVWriter;
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.mappers.BeerMapper;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerExportFormat;
+import guru.springframework.spring6restmvc.model.BeerField;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Catalog export. The beers come from a forward-only stream on BeerRepository that fetches
+ * BeerRepository.EXPORT_FETCH_SIZE rows per round trip. Each row is written as soon as it is read, and after
+ * every fetch the output is flushed to the client and the persistence context is cleared. Memory stays flat
+ * however big the catalog is, and a client that goes away stops the export at the next flush.
+ */
+@Service
+@RequiredArgsConstructor
+public class BeerExportServiceImpl implements BeerExportService {
+
+    private final BeerRepository beerRepository;
+    private final BeerMapper beerMapper;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBeers(String beerName, BeerStyle beerStyle, BeerExportFormat format, OutputStream out)
+            throws IOException {
+
+        long count = 0;
+        try (Stream<Beer> beers = streamBeers(beerName, beerStyle)) {
+            BeerWriter writer = format == BeerExportFormat.CSV ? new CsvBeerWriter(out) : new NdjsonBeerWriter(out);
+
+            for (Iterator<Beer> iterator = beers.iterator(); iterator.hasNext(); ) {
+                writer.write(beerMapper.beerToBeerDto(iterator.next()));
+
+                if (++count % BeerRepository.EXPORT_FETCH_SIZE == 0) {
+                    writer.flush();
+                    entityManager.clear(); //the beers written so far, nothing else refers to them
+                }
+            }
+            writer.flush();
+        }
+        return count;
+    }
+
+    private Stream<Beer> streamBeers(String beerName, BeerStyle beerStyle) {
+        if (StringUtils.hasText(beerName)) {
+            String nameLike = "%" + beerName + "%";
+            return beerStyle == null ? beerRepository.streamAllByBeerNameLike(nameLike)
+                    : beerRepository.streamAllByBeerNameLikeAndBeerStyle(nameLike, beerStyle);
+        }
+        return beerStyle == null ? beerRepository.streamAll() : beerRepository.streamAllByBeerStyle(beerStyle);
+    }
+
+    private interface BeerWriter {
+        void write(BeerDTO beer) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    //Same JSON as the API, one object per line. The servlet stream is left open for the container to close
+    private class NdjsonBeerWriter implements BeerWriter {
+        private final JsonGenerator generator;
+        private final ObjectWriter beerWriter = objectMapper.writerFor(BeerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        NdjsonBeerWriter(OutputStream out) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void write(BeerDTO beer) throws IOException {
+            beerWriter.writeValue(generator, beer);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    //RFC 4180 with a header row, the columns are the BeerField properties
+    private static class CsvBeerWriter implements BeerWriter {
+        private static final String[] HEADER = Arrays.stream(BeerField.values())
+                .map(BeerField::getProperty)
+                .toArray(String[]::new);
+
+        private final ICSVWriter csvWriter;
+        private final String[] row = new String[HEADER.length];
+
+        CsvBeerWriter(OutputStream out) {
+            csvWriter = new CSVWriterBuilder(new OutputStreamWriter(out, StandardCharsets.UTF_8)).build();
+            csvWriter.writeNext(HEADER, false);
+        }
+
+        @Override
+        public void write(BeerDTO beer) {
+            BeerField[] fields = BeerField.values();
+            for (int i = 0; i < fields.length; i++) {
+                row[i] = Objects.toString(fields[i].get(beer), "");
+            }
+            csvWriter.writeNext(row, false); //quotes only the values that need it
+        }
+
+        //The CSV writer keeps write errors to itself, checkError flushes and reports them
+        @Override
+        public void flush() throws IOException {
+            if (csvWriter.checkError()) {
+                throw csvWriter.getException() != null ? csvWriter.getException() : new IOException("CSV export failed");
+            }
+        }
+    }
+}
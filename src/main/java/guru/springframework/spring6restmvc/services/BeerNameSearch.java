@@ -0,0 +1,45 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Backend for beer name searches. Pick one with the beer.search.backend property:
+ * like (default, plain LIKE scan), trigram (opt-in in-process index) or fulltext (MySQL FULLTEXT index).
+ */
+public interface BeerNameSearch {
+
+    //beerStyle is optional. Results come back sorted by beer name, as read-only DTOs
+    Page<BeerDTO> search(String beerName, BeerStyle beerStyle, Pageable pageable);
+
+    //Same page, ids only, for callers that load the beers themselves (sparse fieldsets)
+    Page<UUID> searchIds(String beerName, BeerStyle beerStyle, Pageable pageable);
+
+    //Bulk JPQL writes skip the Hibernate events an in-process index listens to, so they report their changes here,
+    //from inside the writing transaction. A null name or style was not changed
+    default void updated(UUID id, String beerName, BeerStyle beerStyle) {
+    }
+
+    default void deleted(UUID id) {
+    }
+
+    //Puts beers loaded with an "id in" query back in the order of the ids, beers deleted in between are dropped
+    static List<BeerDTO> inOrder(List<UUID> ids, Collection<BeerDTO> beers) {
+        Map<UUID, BeerDTO> found = beers.stream().collect(Collectors.toMap(BeerDTO::getId, Function.identity()));
+
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
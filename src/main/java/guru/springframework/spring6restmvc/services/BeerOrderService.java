@@ -0,0 +1,18 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import org.springframework.data.domain.Page;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BeerOrderService {
+
+    //Empty when the customer or one of the beers does not exist
+    Optional<BeerOrderDTO> placeOrder(BeerOrderCreateDTO beerOrder);
+
+    Optional<BeerOrderDTO> getBeerOrderById(UUID beerOrderId);
+
+    Page<BeerOrderDTO> listBeerOrders(Integer pageNumber, Integer pageSize);
+}
@@ -0,0 +1,139 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.BeerOrder;
+import guru.springframework.spring6restmvc.entities.BeerOrderLine;
+import guru.springframework.spring6restmvc.mappers.BeerOrderMapper;
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderLineDTO;
+import guru.springframework.spring6restmvc.repositories.BeerOrderRepository;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stock is allocated before the order is written, through the configured {@link StockAllocator}: one
+ * auto-committed conditional UPDATE per line by default, so the row lock on a beer is only held for that one
+ * statement and orders for a hot beer queue up behind a short UPDATE instead of behind each other's whole
+ * order transaction.
+ *
+ * A line is allocated in full or not at all (quantityAllocated 0 is a backorder). If the order can't be
+ * written, the allocated stock is put back.
+ *
+ * The allocations and the order are not one transaction. Each allocation is committed on its own before the
+ * order transaction starts, and the put back is a compensating write, not a rollback. If the process dies
+ * between the two, or while stock is being put back, the allocated stock stays taken with no order line
+ * holding it. Nothing reconciles that today: stock that order lines don't account for has to be found and put
+ * back by hand (or by an outbox of allocations replayed on startup, should that become a problem).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BeerOrderServiceJPA implements BeerOrderService {
+
+    private final static int DEFAULT_PAGE_SIZE = 25;
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final BeerRepository beerRepository;
+    private final CustomerRepository customerRepository;
+    private final BeerOrderMapper beerOrderMapper;
+    private final StockAllocator stockAllocator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public Optional<BeerOrderDTO> placeOrder(BeerOrderCreateDTO beerOrder) {
+        List<BeerOrderLineDTO> lines = beerOrder.getBeerOrderLines();
+        Set<UUID> beerIds = lines.stream().map(BeerOrderLineDTO::getBeerId).collect(Collectors.toSet());
+
+        if (!customerRepository.existsById(beerOrder.getCustomerId())
+                || beerRepository.countByIdIn(beerIds) != beerIds.size()) {
+            return Optional.empty();
+        }
+
+        //Each allocation commits here, before the order transaction, see the class comment for what a crash leaves
+        int[] allocated = new int[lines.size()];
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                allocated[i] = allocate(lines.get(i));
+            }
+
+            return Optional.ofNullable(transactionTemplate.execute(status -> saveOrder(beerOrder, allocated)));
+        } catch (RuntimeException e) {
+            release(lines, allocated);
+            throw e;
+        }
+    }
+
+    private int allocate(BeerOrderLineDTO line) {
+        return stockAllocator.allocate(line.getBeerId(), line.getOrderQuantity()) ? line.getOrderQuantity() : 0;
+    }
+
+    private void release(List<BeerOrderLineDTO> lines, int[] allocated) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (allocated[i] > 0) {
+                stockAllocator.release(lines.get(i).getBeerId(), allocated[i]);
+            }
+        }
+    }
+
+    private BeerOrderDTO saveOrder(BeerOrderCreateDTO create, int[] allocated) {
+        BeerOrder beerOrder = new BeerOrder();
+        beerOrder.setCustomerRef(create.getCustomerRef());
+        beerOrder.setCustomer(customerRepository.getReferenceById(create.getCustomerId()));
+
+        Set<BeerOrderLine> lines = new LinkedHashSet<>();
+        for (int i = 0; i < create.getBeerOrderLines().size(); i++) {
+            BeerOrderLineDTO line = create.getBeerOrderLines().get(i);
+
+            lines.add(BeerOrderLine.builder()
+                    .beerOrder(beerOrder)
+                    .beer(beerRepository.getReferenceById(line.getBeerId()))
+                    .orderQuantity(line.getOrderQuantity())
+                    .quantityAllocated(allocated[i])
+                    .build());
+        }
+        beerOrder.setBeerOrderLines(lines);
+
+        BeerOrder savedOrder = beerOrderRepository.save(beerOrder);
+        savedOrder.getBeerOrderLines().stream()
+                .filter(line -> line.getQuantityAllocated() > 0)
+                .forEach(stockAllocator::allocated);
+
+        return beerOrderMapper.beerOrderToBeerOrderDto(savedOrder);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BeerOrderDTO> getBeerOrderById(UUID beerOrderId) {
+        return beerOrderRepository.findWithLinesById(beerOrderId).map(beerOrderMapper::beerOrderToBeerOrderDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BeerOrderDTO> listBeerOrders(Integer pageNumber, Integer pageSize) {
+        int page = pageNumber != null && pageNumber > 0 ? pageNumber - 1 : 0;
+        int size = pageSize == null ? DEFAULT_PAGE_SIZE : Math.min(pageSize, 1000);
+
+        Page<UUID> ids = beerOrderRepository.findIds(PageRequest.of(page, size,
+                Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id"))));
+        if (ids.isEmpty()) {
+            return ids.map(id -> null);
+        }
+
+        Map<UUID, BeerOrder> orders = beerOrderRepository.findWithLinesByIdIn(ids.getContent()).stream()
+                .collect(Collectors.toMap(BeerOrder::getId, Function.identity()));
+
+        return ids.map(id -> beerOrderMapper.beerOrderToBeerOrderDto(orders.get(id)));
+    }
+}
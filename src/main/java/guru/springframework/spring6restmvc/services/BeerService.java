@@ -1,23 +1,43 @@
 package guru.springframework.spring6restmvc.services;
 
+import guru.springframework.spring6restmvc.model.BeerCursor;
+import guru.springframework.spring6restmvc.model.BeerCursorPageDTO;
 import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerField;
 import guru.springframework.spring6restmvc.model.BeerStyle;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface BeerService {
 
     Optional<BeerDTO> getBeerById(UUID id);
 
+    Optional<Integer> getBeerVersion(UUID id);
+
     Page<BeerDTO> listBeers(String beerName, BeerStyle beerStyle, Boolean showInventory, Integer pageNumber, Integer pageSize);
 
+    //The beers linked to a category, filtered by name and style like listBeers
+    Page<BeerDTO> listBeersByCategory(UUID categoryId, String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                      Integer pageNumber, Integer pageSize);
+
+    //Only the selected fields (and the id) are loaded, the rest of each DTO stays null
+    Page<BeerDTO> listBeersWithFields(String beerName, BeerStyle beerStyle, Set<BeerField> fields, Integer pageNumber, Integer pageSize);
+
+    Slice<BeerDTO> listBeersSlice(String beerName, BeerStyle beerStyle, Boolean showInventory, Integer pageNumber, Integer pageSize);
+
+    BeerCursorPageDTO listBeersAfter(String beerName, BeerStyle beerStyle, Boolean showInventory, BeerCursor cursor, Integer pageSize);
+
     BeerDTO saveNewBeer(BeerDTO beer);
 
-    Optional<BeerDTO> updateBeerById(UUID beerId, BeerDTO beer);
+    //Updates and patches are written only while the beer has one of the expectedVersions, null writes unconditionally
+    WriteResult updateBeerById(UUID beerId, BeerDTO beer, Collection<Integer> expectedVersions);
 
     Boolean deleteBeerById(UUID beerId);
 
-    Optional<BeerDTO> patchBeerById(UUID beerID, BeerDTO beer);
+    WriteResult patchBeerById(UUID beerID, BeerDTO beer, Collection<Integer> expectedVersions);
 }
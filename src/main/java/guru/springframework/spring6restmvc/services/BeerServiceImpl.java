@@ -1,16 +1,22 @@
 package guru.springframework.spring6restmvc.services;
 
+import guru.springframework.spring6restmvc.model.BeerCursor;
+import guru.springframework.spring6restmvc.model.BeerCursorPageDTO;
 import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerField;
 import guru.springframework.spring6restmvc.model.BeerStyle;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Created by jt, Spring Framework Guru.
@@ -73,6 +79,44 @@ public class BeerServiceImpl implements BeerService {
         return new PageImpl<>( new ArrayList<>(beerMap.values()));
     }
 
+    //The in-memory beers have no categories
+    @Override
+    public Page<BeerDTO> listBeersByCategory(UUID categoryId, String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                             Integer pageNumber, Integer pageSize) {
+        return new PageImpl<>(new ArrayList<>());
+    }
+
+    @Override
+    public Page<BeerDTO> listBeersWithFields(String beerName, BeerStyle beerStyle, Set<BeerField> fields, Integer pageNumber, Integer pageSize) {
+        return listBeers(beerName, beerStyle, true, pageNumber, pageSize);
+    }
+
+    @Override
+    public Slice<BeerDTO> listBeersSlice(String beerName, BeerStyle beerStyle, Boolean showInventory, Integer pageNumber, Integer pageSize) {
+        return new SliceImpl<>(new ArrayList<>(beerMap.values()));
+    }
+
+    @Override
+    public BeerCursorPageDTO listBeersAfter(String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                            BeerCursor cursor, Integer pageSize) {
+        BeerCursor after = cursor == null ? BeerCursor.START : cursor;
+        int size = pageSize == null ? 25 : pageSize;
+
+        List<BeerDTO> remaining = beerMap.values().stream()
+                .filter(beer -> beer.getBeerName().compareTo(after.beerName()) > 0
+                        || (beer.getBeerName().equals(after.beerName())
+                            && beer.getId().toString().compareTo(after.id().toString()) > 0))
+                .sorted(Comparator.comparing(BeerDTO::getBeerName).thenComparing(beer -> beer.getId().toString()))
+                .collect(Collectors.toList());
+
+        List<BeerDTO> content = remaining.subList(0, Math.min(size, remaining.size()));
+
+        return BeerCursorPageDTO.builder()
+                .content(new ArrayList<>(content))
+                .nextCursor(remaining.size() > size ? BeerCursor.of(content.get(content.size() - 1)).encode() : null)
+                .build();
+    }
+
     //Get Beer by Id
     @Override
     public Optional<BeerDTO> getBeerById(UUID id) {
@@ -81,6 +125,11 @@ public class BeerServiceImpl implements BeerService {
 
         return Optional.of(beerMap.get(id));
     }
+    @Override
+    public Optional<Integer> getBeerVersion(UUID id) {
+        return Optional.ofNullable(beerMap.get(id)).map(BeerDTO::getVersion);
+    }
+
     //Save new beer
     @Override
     public BeerDTO saveNewBeer(BeerDTO beer) {
@@ -100,9 +149,16 @@ public class BeerServiceImpl implements BeerService {
     }
 
     @Override
-    public Optional<BeerDTO> updateBeerById(UUID beerId, BeerDTO beer) {
+    public WriteResult updateBeerById(UUID beerId, BeerDTO beer, Collection<Integer> expectedVersions) {
         BeerDTO oldBeer = beerMap.get(beerId);
 
+        if (oldBeer == null) {
+            return WriteResult.NOT_FOUND;
+        }
+        if (expectedVersions != null && !expectedVersions.contains(oldBeer.getVersion())) {
+            return WriteResult.CONFLICT;
+        }
+
         oldBeer.setBeerName(beer.getBeerName());
         oldBeer.setBeerStyle(beer.getBeerStyle());
         oldBeer.setPrice(beer.getPrice());
@@ -110,22 +166,28 @@ public class BeerServiceImpl implements BeerService {
         oldBeer.setQuantityOnHand(beer.getQuantityOnHand());
 
         beerMap.put(beerId, oldBeer);
-        return Optional.of(beerMap.get(beerId));
+        return WriteResult.WRITTEN;
     }
 
     @Override
     public Boolean deleteBeerById(UUID beerId) {
-        beerMap.remove(beerId);
-        return true;
+        return beerMap.remove(beerId) != null;
     }
 
     @Override
-    public Optional<BeerDTO> patchBeerById(UUID beerID, BeerDTO beer) {
+    public WriteResult patchBeerById(UUID beerID, BeerDTO beer, Collection<Integer> expectedVersions) {
     //Rule of Thumb: We're going to get a POJO here, if a property is null we don't do  the update
     //if it has a value, then update it
 
         BeerDTO existing = beerMap.get(beerID);
 
+        if (existing == null) {
+            return WriteResult.NOT_FOUND;
+        }
+        if (expectedVersions != null && !expectedVersions.contains(existing.getVersion())) {
+            return WriteResult.CONFLICT;
+        }
+
         if(StringUtils.hasText(beer.getBeerName())){
             existing.setBeerName(beer.getBeerName());
         }
@@ -142,7 +204,7 @@ public class BeerServiceImpl implements BeerService {
             existing.setUpc(beer.getUpc());
         }
 
-        return Optional.of(beerMap.get(beerID));
+        return WriteResult.WRITTEN;
     }
 
 }
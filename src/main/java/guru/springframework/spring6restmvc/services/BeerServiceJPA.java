@@ -2,31 +2,49 @@ package guru.springframework.spring6restmvc.services;
 
 import guru.springframework.spring6restmvc.entities.Beer;
 import guru.springframework.spring6restmvc.mappers.BeerMapper;
+import guru.springframework.spring6restmvc.model.BeerCursor;
+import guru.springframework.spring6restmvc.model.BeerCursorPageDTO;
 import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerField;
 import guru.springframework.spring6restmvc.model.BeerStyle;
 import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 @Primary
 @Service
+@Timed("beer.service")
 @RequiredArgsConstructor
 public class BeerServiceJPA implements BeerService {
 
     private final BeerRepository beerRepository;
     private final BeerMapper beerMapper;
+    private final BeerNameSearch beerNameSearch;
+    private final BeerDtoCache beerDtoCache;
+    private final CatalogGeneration catalogGeneration;
+    private final Validator validator;
 
     //If the pageNumber and pageSize parameter are not set, we want default page to be 0, and size to be 25.
     private final static int DEFAULT_PAGE = 0;
@@ -45,32 +63,39 @@ public class BeerServiceJPA implements BeerService {
             queryPageNumber = DEFAULT_PAGE;
         }
 
-        if (pageSize == null){
-
-            queryPageSize = DEFAULT_PAGE_SIZE;
-        }
-        else {
-
-            if(pageSize > 1000){ //Defensive coding: If someone requests a large pageSize, we default to returning only 1000
-                queryPageSize = 1000;
-            }
-            else {
-                queryPageSize = pageSize;
-            }
-        }
+        queryPageSize = queryPageSize(pageSize);
 
         Sort sort = Sort.by(Sort.Order.asc("beerName"));
 
         return PageRequest.of(queryPageNumber, queryPageSize, sort); //Creates a PageRequest
     }
 
+    private int queryPageSize(Integer pageSize){
+
+        if (pageSize == null){
+            return DEFAULT_PAGE_SIZE;
+        }
+        if(pageSize > 1000){ //Defensive coding: If someone requests a large pageSize, we default to returning only 1000
+            return 1000;
+        }
+        return pageSize;
+    }
+
+    //The listings select straight into BeerDTO (see BeerRepository.BEER_DTO): no entities are hydrated, and the
+    //read-only transaction lets Hibernate skip flushing and dirty checking
     @Override
+    @Coalesced(CatalogGeneration.class)
+    @Transactional(readOnly = true)
     public Page<BeerDTO> listBeers(String beerName, BeerStyle beerStyle, Boolean showInventory,
                                    Integer pageNumber, Integer pageSize) {
 
+        if (showInventory != null && !showInventory){ //Hidden inventory is never selected, rather than nulled out afterwards
+            return listBeersWithFields(beerName, beerStyle, BeerField.WITHOUT_INVENTORY, pageNumber, pageSize);
+        }
+
         PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
 
-        Page<Beer> beerPage;
+        Page<BeerDTO> beerPage;
         if(StringUtils.hasText(beerName) && beerStyle == null){
             beerPage = listBeerByName(beerName, pageRequest);
         }
@@ -79,112 +104,240 @@ public class BeerServiceJPA implements BeerService {
         } else if (StringUtils.hasText(beerName) && beerStyle != null) {
             beerPage = listBeerByNameAndStyle(beerName, beerStyle, pageRequest);
         } else {
-            beerPage = beerRepository.findAll(pageRequest);
+            beerPage = beerRepository.findAllDtos(pageRequest);
         }
+        return beerPage;
+    }
+
+    //A join through beer_category_category_beer_idx, the name filter is a plain LIKE: the search backends don't know
+    //about categories
+    @Override
+    @Coalesced(CatalogGeneration.class)
+    @Transactional(readOnly = true)
+    public Page<BeerDTO> listBeersByCategory(UUID categoryId, String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                             Integer pageNumber, Integer pageSize) {
+
+        PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
+        String nameLike = StringUtils.hasText(beerName) ? "%" + beerName + "%" : "%";
+
+        Page<BeerDTO> beerPage = beerStyle == null
+                ? beerRepository.findAllDtosByCategoryIdAndBeerNameLike(categoryId, nameLike, pageRequest)
+                : beerRepository.findAllDtosByCategoryIdAndBeerNameLikeAndBeerStyle(categoryId, nameLike, beerStyle, pageRequest);
 
-        if (showInventory != null && !showInventory){ //If showInventory if False, then we set the quantityOnHand field to null
-            beerPage.forEach(beer -> beer.setQuantityOnHand(null));
+        if (showInventory != null && !showInventory){
+            beerPage.forEach(beerDTO -> beerDTO.setQuantityOnHand(null));
         }
-        return beerPage.map(beerMapper::beerToBeerDto);
+        return beerPage;
     }
-    public Page<Beer> listBeerByName(String beerName, Pageable pageable){
-        return beerRepository.findAllByBeerNameIsLikeIgnoreCase("%" + beerName + "%", pageable);
+
+    //Sparse fieldsets: the select list only has the columns of the selected fields. A name search finds the ids
+    //of the page first, then loads just those rows
+    @Override
+    @Coalesced(CatalogGeneration.class)
+    @Transactional(readOnly = true)
+    public Page<BeerDTO> listBeersWithFields(String beerName, BeerStyle beerStyle, Set<BeerField> fields,
+                                             Integer pageNumber, Integer pageSize) {
+
+        PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
+
+        if (!StringUtils.hasText(beerName)) {
+            return beerRepository.findAllProjected(fields, beerStyle, pageRequest);
+        }
+        Page<UUID> ids = beerNameSearch.searchIds(beerName, beerStyle, pageRequest);
+
+        return new PageImpl<>(BeerNameSearch.inOrder(ids.getContent(),
+                beerRepository.findAllProjectedByIdIn(fields, ids.getContent())), pageRequest, ids.getTotalElements());
     }
-    public Page<Beer> listBeerByStyle(BeerStyle beerStyle, Pageable pageable){
-        return beerRepository.findAllByBeerStyle(beerStyle, pageable);
+    //Same branches as listBeers, but returns a Slice so no count(*) query is issued
+    @Override
+    @Coalesced(CatalogGeneration.class)
+    @Transactional(readOnly = true)
+    public Slice<BeerDTO> listBeersSlice(String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                         Integer pageNumber, Integer pageSize) {
+
+        PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
+
+        Slice<BeerDTO> dtoSlice;
+        if(StringUtils.hasText(beerName)){ //the search backend counts its hits without a count query
+            dtoSlice = beerNameSearch.search(beerName, beerStyle, pageRequest);
+        }
+        else if (beerStyle != null) {
+            dtoSlice = beerRepository.findSliceDtosByBeerStyle(beerStyle, pageRequest);
+        } else {
+            dtoSlice = beerRepository.findSliceDtos(pageRequest);
+        }
+
+        if (showInventory != null && !showInventory){
+            dtoSlice.forEach(beerDTO -> beerDTO.setQuantityOnHand(null));
+        }
+        return dtoSlice;
     }
-    public Page<Beer> listBeerByNameAndStyle(String beerName, BeerStyle beerStyle, Pageable pageable) {
-        return beerRepository.
-                findAllByBeerNameIsLikeIgnoreCaseAndBeerStyle("%" + beerName + "%", beerStyle, pageable);
+
+    //Keyset pagination: no OFFSET and no count query, the cursor carries the (beerName, id) of the last row
+    @Override
+    @Coalesced(CatalogGeneration.class)
+    @Transactional(readOnly = true)
+    public BeerCursorPageDTO listBeersAfter(String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                            BeerCursor cursor, Integer pageSize) {
+
+        BeerCursor after = cursor == null ? BeerCursor.START : cursor;
+        Pageable pageable = PageRequest.ofSize(queryPageSize(pageSize)); //ordering is part of the seek queries
+
+        Slice<BeerDTO> beerSlice;
+        if(StringUtils.hasText(beerName) && beerStyle == null){
+            beerSlice = beerRepository.findAllByBeerNameLikeAfter("%" + beerName + "%",
+                    after.beerName(), after.id(), pageable);
+        }
+        else if (!StringUtils.hasText(beerName) && beerStyle != null) {
+            beerSlice = beerRepository.findAllByBeerStyleAfter(beerStyle, after.beerName(), after.id(), pageable);
+        } else if (StringUtils.hasText(beerName) && beerStyle != null) {
+            beerSlice = beerRepository.findAllByBeerNameLikeAndBeerStyleAfter("%" + beerName + "%", beerStyle,
+                    after.beerName(), after.id(), pageable);
+        } else {
+            beerSlice = beerRepository.findAllAfter(after.beerName(), after.id(), pageable);
+        }
+
+        List<BeerDTO> content = beerSlice.getContent();
+
+        if (showInventory != null && !showInventory){
+            content.forEach(beerDTO -> beerDTO.setQuantityOnHand(null));
+        }
+
+        return BeerCursorPageDTO.builder()
+                .content(content)
+                .nextCursor(beerSlice.hasNext() ? BeerCursor.of(content.get(content.size() - 1)).encode() : null)
+                .build();
+    }
+
+    public Page<BeerDTO> listBeerByName(String beerName, Pageable pageable){
+        return beerNameSearch.search(beerName, null, pageable);
+    }
+    public Page<BeerDTO> listBeerByStyle(BeerStyle beerStyle, Pageable pageable){
+        return beerRepository.findAllDtosByBeerStyle(beerStyle, pageable);
+    }
+    public Page<BeerDTO> listBeerByNameAndStyle(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        return beerNameSearch.search(beerName, beerStyle, pageable);
     }
 
     @Override
     public Optional<BeerDTO> getBeerById(UUID id) {
 
-        Optional<Beer> beer = beerRepository.findById(id);
+        //Served from the cache when possible, the DTO is only loaded and mapped on a miss
+        return beerDtoCache.get(id, beerId -> {
+            Optional<Beer> beer = beerRepository.findById(beerId);
 
-        //orElse method is used to retrieve object inside Optional,
-        // if optional is empty it returns null
-        BeerDTO beerDTO = beerMapper.beerToBeerDto(beer.orElse(null));
+            //orElse method is used to retrieve object inside Optional,
+            // if optional is empty it returns null
+            BeerDTO beerDTO = beerMapper.beerToBeerDto(beer.orElse(null));
 
-        return Optional.ofNullable(beerDTO);
+            return Optional.ofNullable(beerDTO);
+        });
     }
 
 
 
+    //A cached DTO already knows its version, otherwise a single column lookup
+    @Override
+    @Coalesced(CatalogGeneration.class)
+    public Optional<Integer> getBeerVersion(UUID id) {
+        return beerDtoCache.getIfPresent(id)
+                .map(BeerDTO::getVersion)
+                .or(() -> beerRepository.findVersionById(id));
+    }
+
     @Override
     public BeerDTO saveNewBeer(BeerDTO beer) {
         Beer entity = beerMapper.beerDtoToBeer(beer);
         Beer savedEntity = beerRepository.save(entity);
+        catalogGeneration.bump();
         return beerMapper.beerToBeerDto(savedEntity);
     }
 
+    //PUT: every writable field, in one UPDATE
     @Override
-    public Optional<BeerDTO> updateBeerById(UUID beerId, BeerDTO beer) {
-        //For optimistic locking demo
-//        return Optional.of(beerMapper.beerToBeerDto(
-//                beerRepository.save(beerMapper.beerDtoToBeer(beer))
-//        ));
-        AtomicReference<Optional<BeerDTO>> atomicReference = new AtomicReference<>();
-
-        beerRepository.findById(beerId).ifPresentOrElse(
-                foundBeer -> {
-                    foundBeer.setBeerName(beer.getBeerName());
-                    foundBeer.setBeerStyle(beer.getBeerStyle());
-                    foundBeer.setQuantityOnHand(beer.getQuantityOnHand());
-                    foundBeer.setPrice(beer.getPrice());
-                    foundBeer.setUpc(beer.getUpc());
-                    beerRepository.save(foundBeer);
-                    Optional<BeerDTO>beerDTO = Optional.of(beerMapper.beerToBeerDto(foundBeer));
-                    atomicReference.set(beerDTO);
-                },
-                () ->{
-                    atomicReference.set(Optional.empty());
-                }
-        );
-        return atomicReference.get();
+    @Transactional
+    public WriteResult updateBeerById(UUID beerId, BeerDTO beer, Collection<Integer> expectedVersions) {
+        Map<BeerField, Object> values = new EnumMap<>(BeerField.class);
+        values.put(BeerField.BEER_NAME, beer.getBeerName());
+        values.put(BeerField.BEER_STYLE, beer.getBeerStyle());
+        values.put(BeerField.QUANTITY_ON_HAND, beer.getQuantityOnHand());
+        values.put(BeerField.PRICE, beer.getPrice());
+        values.put(BeerField.UPC, beer.getUpc());
+
+        return write(beerId, values, expectedVersions);
     }
 
+    //One DELETE, no lookup before it
     @Override
+    @Transactional
     public Boolean deleteBeerById(UUID beerId) {
 
-        if(beerRepository.existsById(beerId)){
-            beerRepository.deleteById(beerId);
-            return true;
+        if (beerRepository.deleteRowById(beerId) == 0) {
+            return false;
         }
-        return false;
+        beerDtoCache.evict(beerId);
+        beerNameSearch.deleted(beerId);
+        catalogGeneration.bump();
+        return true;
     }
 
+    //PATCH: only the fields that were sent, in one UPDATE
     @Override
-    public Optional<BeerDTO> patchBeerById(UUID beerID, BeerDTO beer) {
-
-        AtomicReference<Optional<BeerDTO>> atomicReference = new AtomicReference<>();
-
-        beerRepository.findById(beerID).ifPresentOrElse(
-                oldBeer -> {
-                    if(StringUtils.hasText(beer.getBeerName())){
-                        oldBeer.setBeerName(beer.getBeerName());
-                    }
-                    if(beer.getBeerStyle() != null){
-                        oldBeer.setBeerStyle(beer.getBeerStyle());
-                    }
-                    if(beer.getPrice() != null){
-                        oldBeer.setPrice(beer.getPrice());
-                    }
-                    if(StringUtils.hasText(beer.getUpc())){
-                        oldBeer.setUpc(beer.getUpc());
-                    }
-                    if(beer.getQuantityOnHand() != null){
-                        oldBeer.setQuantityOnHand(beer.getQuantityOnHand());
-                    }
-                    beerRepository.save(oldBeer);
-                    Optional<BeerDTO> beerDTO = Optional.of(beerMapper.beerToBeerDto(oldBeer));
-                    atomicReference.set(beerDTO);
-                },
-                () -> {
-                    atomicReference.set(Optional.empty());
-                }
-        );
-        return atomicReference.get();
+    @Transactional
+    public WriteResult patchBeerById(UUID beerID, BeerDTO beer, Collection<Integer> expectedVersions) {
+        Map<BeerField, Object> values = new EnumMap<>(BeerField.class);
+
+        if(StringUtils.hasText(beer.getBeerName())){
+            values.put(BeerField.BEER_NAME, beer.getBeerName());
+        }
+        if(beer.getBeerStyle() != null){
+            values.put(BeerField.BEER_STYLE, beer.getBeerStyle());
+        }
+        if(beer.getPrice() != null){
+            values.put(BeerField.PRICE, beer.getPrice());
+        }
+        if(StringUtils.hasText(beer.getUpc())){
+            values.put(BeerField.UPC, beer.getUpc());
+        }
+        if(beer.getQuantityOnHand() != null){
+            values.put(BeerField.QUANTITY_ON_HAND, beer.getQuantityOnHand());
+        }
+        return write(beerID, values, expectedVersions);
+    }
+
+    //UPDATE ... WHERE id = ? [AND version IN (...)] without loading the beer. The version lookup only runs when
+    //nothing was written, to tell a missing beer from a stale version
+    private WriteResult write(UUID beerId, Map<BeerField, Object> values, Collection<Integer> expectedVersions) {
+        Set<ConstraintViolation<Beer>> violations = validate(values);
+        if (!violations.isEmpty()) {
+            //A missing beer is still a 404, like it was when the beer was loaded first
+            if (beerRepository.findVersionById(beerId).isEmpty()) {
+                return WriteResult.NOT_FOUND;
+            }
+            throw new ConstraintViolationException(violations);
+        }
+
+        if (values.isEmpty() || expectedVersions != null && expectedVersions.isEmpty()) { //only the precondition to check
+            return beerRepository.findVersionById(beerId)
+                    .map(version -> expectedVersions == null || expectedVersions.contains(version)
+                            ? WriteResult.WRITTEN : WriteResult.CONFLICT)
+                    .orElse(WriteResult.NOT_FOUND);
+        }
+
+        if (beerRepository.updateFields(beerId, expectedVersions, values) == 0) {
+            return expectedVersions != null && beerRepository.findVersionById(beerId).isPresent()
+                    ? WriteResult.CONFLICT : WriteResult.NOT_FOUND;
+        }
+        beerDtoCache.evict(beerId);
+        beerNameSearch.updated(beerId, (String) values.get(BeerField.BEER_NAME), (BeerStyle) values.get(BeerField.BEER_STYLE));
+        catalogGeneration.bump();
+        return WriteResult.WRITTEN;
+    }
+
+    //The Beer entity constraints, which a bulk UPDATE never gets to see
+    private Set<ConstraintViolation<Beer>> validate(Map<BeerField, Object> values) {
+        Set<ConstraintViolation<Beer>> violations = new HashSet<>();
+        values.forEach((field, value) -> violations.addAll(validator.validateValue(Beer.class, field.getProperty(), value)));
+        return violations;
     }
 }
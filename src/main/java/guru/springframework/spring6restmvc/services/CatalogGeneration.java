@@ -0,0 +1,11 @@
+package guru.springframework.spring6restmvc.services;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Version number of the beer catalog as a whole. Every write that can change a beer listing (beers, their stock,
+ * their categories) bumps it once its transaction commits.
+ */
+@Component
+public class CatalogGeneration extends WriteGeneration {
+}
@@ -0,0 +1,29 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.CategoryDTO;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CategoryService {
+
+    //The whole catalog, ordered by description
+    List<CategoryDTO> listCategories();
+
+    Optional<CategoryDTO> getCategoryById(UUID categoryId);
+
+    CategoryDTO saveNewCategory(CategoryDTO category);
+
+    Optional<CategoryDTO> updateCategoryById(UUID categoryId, CategoryDTO category);
+
+    Boolean deleteCategoryById(UUID categoryId);
+
+    //Empty when there is no such beer
+    Optional<List<CategoryDTO>> getBeerCategories(UUID beerId);
+
+    //False when the category or the beer doesn't exist
+    Boolean addBeer(UUID categoryId, UUID beerId);
+
+    Boolean removeBeer(UUID categoryId, UUID beerId);
+}
@@ -0,0 +1,117 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.entities.Category;
+import guru.springframework.spring6restmvc.mappers.CategoryMapper;
+import guru.springframework.spring6restmvc.model.CategoryDTO;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Categories are read from the Hibernate second-level cache (see Category and Beer.categories), so writes go through
+ * the entities rather than bulk statements: Hibernate then updates or invalidates the cached copies itself when the
+ * transaction commits, and loading the category first is a cache hit.
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryServiceJPA implements CategoryService {
+
+    private final CategoryRepository categoryRepository;
+    private final BeerRepository beerRepository;
+    private final CategoryMapper categoryMapper;
+    private final BeerDtoCache beerDtoCache;
+    private final CatalogGeneration catalogGeneration;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryDTO> listCategories() {
+        return categoryRepository.findCatalog().stream()
+                .map(categoryMapper::categoryToCategoryDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<CategoryDTO> getCategoryById(UUID categoryId) {
+        return categoryRepository.findById(categoryId).map(categoryMapper::categoryToCategoryDto);
+    }
+
+    @Override
+    @Transactional
+    public CategoryDTO saveNewCategory(CategoryDTO category) {
+        Category savedCategory = categoryRepository.saveAndFlush(categoryMapper.categoryDtoToCategory(category));
+
+        return categoryMapper.categoryToCategoryDto(savedCategory);
+    }
+
+    @Override
+    @Transactional
+    public Optional<CategoryDTO> updateCategoryById(UUID categoryId, CategoryDTO category) {
+        return categoryRepository.findById(categoryId).map(existing -> {
+            existing.setDescription(category.getDescription());
+            return categoryMapper.categoryToCategoryDto(categoryRepository.saveAndFlush(existing));
+        });
+    }
+
+    //The beer_category rows go first, Category doesn't own them
+    @Override
+    @Transactional
+    public Boolean deleteCategoryById(UUID categoryId) {
+        Optional<Category> category = categoryRepository.findById(categoryId);
+        if (category.isEmpty()) {
+            return false;
+        }
+        categoryRepository.deleteBeerLinks(categoryId);
+        categoryRepository.delete(category.get());
+        catalogGeneration.bump(); //the category= listings
+        return true;
+    }
+
+    //The category ids of the beer come from the beer-categories region, the categories from the category region
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<CategoryDTO>> getBeerCategories(UUID beerId) {
+        return beerRepository.findById(beerId).map(beer -> beer.getCategories().stream()
+                .map(categoryMapper::categoryToCategoryDto)
+                .sorted(Comparator.comparing(CategoryDTO::getDescription))
+                .toList());
+    }
+
+    @Override
+    @Transactional
+    public Boolean addBeer(UUID categoryId, UUID beerId) {
+        return link(categoryId, beerId, true);
+    }
+
+    @Override
+    @Transactional
+    public Boolean removeBeer(UUID categoryId, UUID beerId) {
+        return link(categoryId, beerId, false);
+    }
+
+    //Only Beer.categories changes, it owns the link. Beer.addCategory would also load Category.beers, every beer of
+    //the category. Changing the collection bumps the beer's version
+    private Boolean link(UUID categoryId, UUID beerId, boolean linked) {
+        Optional<Category> category = categoryRepository.findById(categoryId);
+        Optional<Beer> beer = beerRepository.findById(beerId);
+        if (category.isEmpty() || beer.isEmpty()) {
+            return false;
+        }
+        if (linked) {
+            beer.get().getCategories().add(category.get());
+        } else {
+            beer.get().getCategories().remove(category.get());
+        }
+        beerDtoCache.evict(beerId);
+        catalogGeneration.bump();
+        return true;
+    }
+}
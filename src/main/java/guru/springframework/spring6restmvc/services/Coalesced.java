@@ -0,0 +1,22 @@
+package guru.springframework.spring6restmvc.services;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read whose concurrent calls with equal arguments may share one load: the first caller runs it, callers
+ * that arrive while it runs wait for its result (or its exception) instead of going to the database themselves.
+ * Applied by the coalescing aspect, see CoalescingConfig. The arguments are the key, so they need equals.
+ *
+ * The key also holds the current value of the given {@link WriteGeneration}, so a caller never joins a load that
+ * started before a write it has seen committed. Callers share the returned object: it must not be modified.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+
+    //The generation the writes of this data bump
+    Class<? extends WriteGeneration> value();
+}
@@ -0,0 +1,42 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.BeerOrderLine;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+//Each allocation is one auto-committed conditional UPDATE, the row lock is only held for that statement
+@Service
+@ConditionalOnProperty(name = "beer.order.allocation", havingValue = "update", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ConditionalUpdateStockAllocator implements StockAllocator {
+
+    private final BeerRepository beerRepository;
+    private final BeerDtoCache beerDtoCache;
+    private final CatalogGeneration catalogGeneration;
+
+    @Override
+    public boolean allocate(UUID beerId, int quantity) {
+        if (beerRepository.allocate(beerId, quantity) == 0) {
+            return false;
+        }
+        beerDtoCache.evict(beerId); //stock and version changed under the cached DTO
+        catalogGeneration.bump();
+        return true;
+    }
+
+    @Override
+    public void release(UUID beerId, int quantity) {
+        beerRepository.release(beerId, quantity);
+        beerDtoCache.evict(beerId);
+        catalogGeneration.bump();
+    }
+
+    @Override
+    public void allocated(BeerOrderLine beerOrderLine) {
+        //already written by allocate
+    }
+}
@@ -0,0 +1,109 @@
+package guru.springframework.spring6restmvc.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV file into byte ranges that start and end on line boundaries, so every range can be parsed on its own
+ * with the header line put in front of it. Ranges are read through memory mapped buffers.
+ *
+ * Assumes no line breaks inside quoted fields, which holds for the beers.csv format.
+ */
+final class CsvPartitions {
+
+    //A single mapping can't exceed 2GB, bigger files get more partitions than requested
+    private static final long MAX_PARTITION_SIZE = 1L << 30;
+
+    record Partition(long start, long end) {
+        long length() {
+            return end - start;
+        }
+    }
+
+    private CsvPartitions() {
+    }
+
+    //The first line, line break included
+    static byte[] header(FileChannel channel) throws IOException {
+        long headerEnd = nextLineStart(channel, 0);
+        ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        return header.array();
+    }
+
+    static List<Partition> split(FileChannel channel, long dataStart, int count) throws IOException {
+        long size = channel.size();
+        long dataSize = size - dataStart;
+        int partitions = (int) Math.max(count, dataSize / MAX_PARTITION_SIZE + 1);
+        long target = Math.max(1, dataSize / partitions);
+
+        List<Partition> result = new ArrayList<>(partitions);
+        long start = dataStart;
+
+        while (start < size) {
+            //Move the cut forward to the start of the next line
+            long end = result.size() == partitions - 1 ? size : nextLineStart(channel, Math.min(start + target, size));
+            result.add(new Partition(start, end));
+            start = end;
+        }
+        return result;
+    }
+
+    static InputStream open(FileChannel channel, byte[] header, Partition partition) throws IOException {
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, partition.start(), partition.length());
+
+        return new SequenceInputStream(new ByteArrayInputStream(header), new ByteBufferInputStream(mapped));
+    }
+
+    //Position just after the first '\n' at or after position, or the end of the file
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position;
+
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package guru.springframework.spring6restmvc.services;
+
+import org.springframework.stereotype.Component;
+
+//Bumped by every customer write once it commits
+@Component
+public class CustomerGeneration extends WriteGeneration {
+}
@@ -1,7 +1,10 @@
 package guru.springframework.spring6restmvc.services;
 
 import guru.springframework.spring6restmvc.model.CustomerDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,13 +16,20 @@ public interface CustomerService {
 
     Optional<CustomerDTO> getCustomerById(UUID uuid);
 
+    Optional<Integer> getCustomerVersion(UUID customerId);
+
     List<CustomerDTO> getAllCustomers();
 
+    Page<CustomerDTO> listCustomers(Integer pageNumber, Integer pageSize);
+
+    Slice<CustomerDTO> listCustomersSlice(Integer pageNumber, Integer pageSize);
+
     CustomerDTO saveNewCustomer(CustomerDTO customer);
 
-    Optional<CustomerDTO> updateCustomerById(UUID customerId, CustomerDTO customer);
+    //Written only while the customer has one of the expectedVersions, null writes unconditionally
+    WriteResult updateCustomerById(UUID customerId, CustomerDTO customer, Collection<Integer> expectedVersions);
 
     Boolean deleteCustomerById(UUID customerId);
 
-    Optional<CustomerDTO> patchCustomerById(UUID customerId, CustomerDTO customer);
+    WriteResult patchCustomerById(UUID customerId, CustomerDTO customer, Collection<Integer> expectedVersions);
 }
@@ -1,6 +1,10 @@
 package guru.springframework.spring6restmvc.services;
 
 import guru.springframework.spring6restmvc.model.CustomerDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -47,26 +51,38 @@ public class CustomerServiceImpl implements CustomerService {
     }
 
     @Override
-    public Optional<CustomerDTO> patchCustomerById(UUID customerId, CustomerDTO customer) {
+    public WriteResult patchCustomerById(UUID customerId, CustomerDTO customer, Collection<Integer> expectedVersions) {
         CustomerDTO existing = customerMap.get(customerId);
 
+        if (existing == null) {
+            return WriteResult.NOT_FOUND;
+        }
+        if (expectedVersions != null && !expectedVersions.contains(existing.getVersion())) {
+            return WriteResult.CONFLICT;
+        }
         if (StringUtils.hasText(customer.getName())) {
             existing.setName(customer.getName());
         }
-        return Optional.of(customerMap.get(existing));
+        return WriteResult.WRITTEN;
     }
 
     @Override
     public Boolean deleteCustomerById(UUID customerId) {
-        customerMap.remove(customerId);
-        return true;
+        return customerMap.remove(customerId) != null;
     }
 
     @Override
-    public Optional<CustomerDTO> updateCustomerById(UUID customerId, CustomerDTO customer) {
+    public WriteResult updateCustomerById(UUID customerId, CustomerDTO customer, Collection<Integer> expectedVersions) {
         CustomerDTO existing = customerMap.get(customerId);
+
+        if (existing == null) {
+            return WriteResult.NOT_FOUND;
+        }
+        if (expectedVersions != null && !expectedVersions.contains(existing.getVersion())) {
+            return WriteResult.CONFLICT;
+        }
         existing.setName(customer.getName());
-        return Optional.of(customerMap.get(existing.getId()));
+        return WriteResult.WRITTEN;
     }
 
     @Override
@@ -90,10 +106,25 @@ public class CustomerServiceImpl implements CustomerService {
         return Optional.of(customerMap.get(uuid));
     }
 
+    @Override
+    public Optional<Integer> getCustomerVersion(UUID customerId) {
+        return Optional.ofNullable(customerMap.get(customerId)).map(CustomerDTO::getVersion);
+    }
+
     @Override
     public List<CustomerDTO> getAllCustomers() {
         return new ArrayList<>(customerMap.values());
     }
+
+    @Override
+    public Page<CustomerDTO> listCustomers(Integer pageNumber, Integer pageSize) {
+        return new PageImpl<>(new ArrayList<>(customerMap.values()));
+    }
+
+    @Override
+    public Slice<CustomerDTO> listCustomersSlice(Integer pageNumber, Integer pageSize) {
+        return new SliceImpl<>(new ArrayList<>(customerMap.values()));
+    }
 }
 
 
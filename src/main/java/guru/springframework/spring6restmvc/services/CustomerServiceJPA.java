@@ -4,19 +4,25 @@ import guru.springframework.spring6restmvc.entities.Customer;
 import guru.springframework.spring6restmvc.mappers.CustomerMapper;
 import guru.springframework.spring6restmvc.model.CustomerDTO;
 import guru.springframework.spring6restmvc.repositories.CustomerRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 @Primary
 @Service
+@Timed("customer.service")
 @RequiredArgsConstructor
 public class CustomerServiceJPA implements CustomerService {
 
@@ -24,79 +30,102 @@ public class CustomerServiceJPA implements CustomerService {
 
     private final CustomerMapper customerMapper;
 
+    private final CustomerGeneration customerGeneration;
+
+    private final static int DEFAULT_PAGE = 0;
+    private final static int DEFAULT_PAGE_SIZE = 25;
+
+    public PageRequest buildPageRequest(Integer pageNumber, Integer pageSize){
+
+        int queryPageNumber = (pageNumber != null && pageNumber > 0) ? pageNumber - 1 : DEFAULT_PAGE; //API pages are 1 indexed
+        int queryPageSize = pageSize == null ? DEFAULT_PAGE_SIZE : Math.min(pageSize, 1000);
+
+        return PageRequest.of(queryPageNumber, queryPageSize, Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id"))); //id keeps equal names in a stable order
+    }
+
     @Override
+    @Coalesced(CustomerGeneration.class)
     public Optional<CustomerDTO> getCustomerById(UUID uuid) {
-        if (customerRepository.existsById(uuid)){
-            Customer customer = customerRepository.findById(uuid).get();
-            return Optional.of(customerMapper.customerToCustomerDto(customer));
-        }
-        return Optional.empty();
+        return customerRepository.findById(uuid).map(customerMapper::customerToCustomerDto);
+    }
+
+    @Override
+    @Coalesced(CustomerGeneration.class)
+    public Optional<Integer> getCustomerVersion(UUID customerId) {
+        return customerRepository.findVersionById(customerId);
     }
 
+    //Listings select straight into CustomerDTO, read-only so Hibernate never flushes or dirty checks
     @Override
+    @Coalesced(CustomerGeneration.class)
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getAllCustomers() {
-        List<Customer> customerList = customerRepository.findAll();
+        return customerRepository.findAllDtos();
+    }
 
-        return customerList.stream()
-                .map(customerMapper::customerToCustomerDto)
-                .collect(Collectors.toList());
+    @Override
+    @Coalesced(CustomerGeneration.class)
+    @Transactional(readOnly = true)
+    public Page<CustomerDTO> listCustomers(Integer pageNumber, Integer pageSize) {
+        return customerRepository.findAllDtos(buildPageRequest(pageNumber, pageSize));
+    }
+
+    @Override
+    @Coalesced(CustomerGeneration.class)
+    @Transactional(readOnly = true)
+    public Slice<CustomerDTO> listCustomersSlice(Integer pageNumber, Integer pageSize) {
+        return customerRepository.findSliceDtos(buildPageRequest(pageNumber, pageSize));
     }
 
     @Override
     public CustomerDTO saveNewCustomer(CustomerDTO customer) {
         Customer savedCustomer = customerRepository.save(customerMapper.customerDtoToCustomer(customer));
+        customerGeneration.bump();
 
         return customerMapper.customerToCustomerDto(savedCustomer);
     }
 
     @Override
-    public Optional<CustomerDTO> updateCustomerById(UUID customerId, CustomerDTO customer) {
-
-        AtomicReference<Optional<CustomerDTO>> atomicReference = new AtomicReference<>();
-
-        customerRepository.findById(customerId).ifPresentOrElse(
-                (oldCustomer) -> {
-                    oldCustomer.setName(customer.getName());
-                    Customer savedCustomer = customerRepository.save(oldCustomer);
-                    CustomerDTO customerDTO = customerMapper.customerToCustomerDto(savedCustomer);
-                    atomicReference.set(Optional.of(customerDTO));
-                },
-                () -> {
-                    atomicReference.set(Optional.empty());
-                }
-        );
-        return atomicReference.get();
+    @Transactional
+    public WriteResult updateCustomerById(UUID customerId, CustomerDTO customer, Collection<Integer> expectedVersions) {
+        return writeName(customerId, customer.getName(), true, expectedVersions);
     }
 
+    //One DELETE, no lookup before it
     @Override
+    @Transactional
     public Boolean deleteCustomerById(UUID customerId) {
-
-        if(customerRepository.existsById(customerId)){
-            customerRepository.deleteById(customerId);
-            return true;
+        if (customerRepository.deleteRowById(customerId) == 0) {
+            return false;
         }
-        return false;
+        customerGeneration.bump();
+        return true;
     }
 
     @Override
-    public Optional<CustomerDTO> patchCustomerById(UUID customerId, CustomerDTO customer) {
-
-        AtomicReference<Optional<CustomerDTO>> atomicReference = new AtomicReference<>();
-
-        customerRepository.findById(customerId).ifPresentOrElse(
-                (oldCustomer) -> {
-                    if(StringUtils.hasText(customer.getName())){
-                        oldCustomer.setName(customer.getName());
-                    }
-                    Customer savedCustomer = customerRepository.save(oldCustomer);
-                    Optional<CustomerDTO> customerDTO = Optional.of(customerMapper.customerToCustomerDto(savedCustomer));
-                    atomicReference.set(customerDTO);
-                },
-                () -> {
-                    atomicReference.set(Optional.empty());
-                }
-        );
-        return atomicReference.get();
+    @Transactional
+    public WriteResult patchCustomerById(UUID customerId, CustomerDTO customer, Collection<Integer> expectedVersions) {
+        return writeName(customerId, customer.getName(), StringUtils.hasText(customer.getName()), expectedVersions);
+    }
 
+    //One UPDATE without loading the customer, see BeerServiceJPA. The version lookup only runs when nothing was written.
+    //A PUT replaces the name even with null, a PATCH without a name only checks the precondition
+    private WriteResult writeName(UUID customerId, String name, boolean write, Collection<Integer> expectedVersions) {
+        if (!write || expectedVersions != null && expectedVersions.isEmpty()) { //only the precondition to check
+            return customerRepository.findVersionById(customerId)
+                    .map(version -> expectedVersions == null || expectedVersions.contains(version)
+                            ? WriteResult.WRITTEN : WriteResult.CONFLICT)
+                    .orElse(WriteResult.NOT_FOUND);
+        }
+
+        int updated = expectedVersions == null
+                ? customerRepository.updateName(customerId, name)
+                : customerRepository.updateNameIfVersion(customerId, name, expectedVersions);
+        if (updated == 0) {
+            return expectedVersions != null && customerRepository.findVersionById(customerId).isPresent()
+                    ? WriteResult.CONFLICT : WriteResult.NOT_FOUND;
+        }
+        customerGeneration.bump();
+        return WriteResult.WRITTEN;
     }
 }
@@ -0,0 +1,80 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Uses the MySQL FULLTEXT index on beer.beer_name (Flyway V7). Matching is word based: every word of the
+ * search has to start a word of the beer name, so "ipa" finds "Hop IPA" and "Ipanema Lager" but not "Hazy
+ * Lipa". A search without any letter or digit (like "-") has no words to match and falls back to LIKE.
+ */
+@Service
+@ConditionalOnProperty(name = "beer.search.backend", havingValue = "fulltext")
+public class FullTextBeerNameSearch implements BeerNameSearch {
+
+    private final BeerRepository beerRepository;
+    private final LikeBeerNameSearch likeSearch;
+
+    public FullTextBeerNameSearch(BeerRepository beerRepository) {
+        this.beerRepository = beerRepository;
+        this.likeSearch = new LikeBeerNameSearch(beerRepository);
+    }
+
+    @Override
+    public Page<BeerDTO> search(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        if (toBooleanModeQuery(beerName).isEmpty()) {
+            return likeSearch.search(beerName, beerStyle, pageable);
+        }
+        //The index only hands back ids, the page itself is one DTO projection in the index's order
+        Page<UUID> ids = searchIds(beerName, beerStyle, pageable);
+
+        return new PageImpl<>(BeerNameSearch.inOrder(ids.getContent(), beerRepository.findAllDtosByIdIn(ids.getContent())),
+                pageable, ids.getTotalElements());
+    }
+
+    @Override
+    public Page<UUID> searchIds(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        String query = toBooleanModeQuery(beerName);
+        if (query.isEmpty()) {
+            return likeSearch.searchIds(beerName, beerStyle, pageable);
+        }
+
+        //Native queries can't translate the entity sort property, ordering is in the query itself
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+
+        Page<Object> ids = beerStyle == null
+                ? beerRepository.searchIdsByBeerName(query, unsorted)
+                : beerRepository.searchIdsByBeerNameAndBeerStyle(query, beerStyle.ordinal(), unsorted);
+
+        return ids.map(FullTextBeerNameSearch::toUuid);
+    }
+
+    //Native queries hand back the raw column: text for varchar(36) ids, 16 bytes for BINARY(16) ids
+    static UUID toUuid(Object id) {
+        if (id instanceof byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        return UUID.fromString(id.toString());
+    }
+
+    //"hop ipa" -> "+hop* +ipa*". Boolean mode operators typed by the client are dropped
+    static String toBooleanModeQuery(String beerName) {
+        return Arrays.stream(beerName.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> "+" + word + "*")
+                .collect(Collectors.joining(" "));
+    }
+}
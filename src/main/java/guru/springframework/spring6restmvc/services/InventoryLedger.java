@@ -0,0 +1,210 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.BeerOrderLine;
+import guru.springframework.spring6restmvc.entities.InventoryReservation;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.BeerStockView;
+import guru.springframework.spring6restmvc.repositories.InventoryReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory stock ledger for flash sales, where a handful of beers take most of the orders and the row locks
+ * on beer.quantity_on_hand become the bottleneck. Orders reserve from a {@link StripedStock} per beer, without
+ * touching the beer row, and every reservation is journaled as an {@link InventoryReservation} in the order
+ * transaction. A background flush applies the journal to the beer table in batches, one UPDATE per beer per
+ * batch, and deletes the applied rows in the same transaction.
+ *
+ * A beer's counter is loaded on first use as quantity_on_hand minus its journaled reservations, so after a crash
+ * the counters come back right and the next flush replays whatever was not applied yet. Each flush also picks
+ * up stock changed by other writers (a PUT restocking a beer) for the beers in memory.
+ *
+ * The counters live in this JVM: with more than one instance the ledger would oversell, use the update allocator.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "beer.order.allocation", havingValue = "ledger")
+public class InventoryLedger implements StockAllocator, DisposableBean {
+
+    private final BeerRepository beerRepository;
+    private final InventoryReservationRepository reservationRepository;
+    private final BeerDtoCache beerDtoCache;
+    private final CatalogGeneration catalogGeneration;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int stripes;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<UUID, Stock> stocks = new ConcurrentHashMap<>();
+    //Loading a counter and flushing must not interleave, a load between the two steps of a flush would count twice
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    //base is quantity_on_hand as the ledger last saw it, only changed under the flushLock
+    private static final class Stock {
+        final StripedStock available;
+        long base;
+
+        Stock(StripedStock available, long base) {
+            this.available = available;
+            this.base = base;
+        }
+    }
+
+    public InventoryLedger(BeerRepository beerRepository, InventoryReservationRepository reservationRepository,
+                           BeerDtoCache beerDtoCache, CatalogGeneration catalogGeneration,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${beer.order.ledger.flush-interval:1s}") Duration flushInterval,
+                           @Value("${beer.order.ledger.batch-size:500}") int batchSize,
+                           @Value("${beer.order.ledger.stripes:0}") int stripes) {
+        this.beerRepository = beerRepository;
+        this.reservationRepository = reservationRepository;
+        this.beerDtoCache = beerDtoCache;
+        this.catalogGeneration = catalogGeneration;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.stripes = stripes > 0 ? stripes : 2 * Runtime.getRuntime().availableProcessors();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean allocate(UUID beerId, int quantity) {
+        return stock(beerId).available.tryReserve(quantity);
+    }
+
+    @Override
+    public void release(UUID beerId, int quantity) {
+        stock(beerId).available.add(quantity);
+    }
+
+    @Override
+    public void allocated(BeerOrderLine beerOrderLine) {
+        reservationRepository.save(InventoryReservation.builder()
+                .beerId(beerOrderLine.getBeer().getId())
+                .beerOrderLineId(beerOrderLine.getId())
+                .quantity(beerOrderLine.getQuantityAllocated())
+                .build());
+    }
+
+    //Stock the ledger would hand out right now
+    public long available(UUID beerId) {
+        return stock(beerId).available.sum();
+    }
+
+    private Stock stock(UUID beerId) {
+        Stock stock = stocks.get(beerId);
+        return stock != null ? stock : stocks.computeIfAbsent(beerId, this::load);
+    }
+
+    private Stock load(UUID beerId) {
+        flushLock.lock();
+        try {
+            long onHand = beerRepository.findStockByIdIn(List.of(beerId)).stream()
+                    .map(BeerStockView::getQuantityOnHand)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse(0);
+            long journaled = reservationRepository.sumQuantityByBeerId(beerId);
+
+            return new Stock(new StripedStock(stripes, onHand - journaled), onHand);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the whole journal, batchSize reservations per transaction, then reconciles the counters
+     * with the beer table. Runs on the ledger thread, package-private for tests.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            Applied applied;
+            do {
+                applied = Objects.requireNonNull(transactionTemplate.execute(status -> applyBatch()));
+
+                //Committed: the counters already account for these, only the last seen stock moves
+                applied.totals().forEach((beerId, quantity) -> {
+                    Stock stock = stocks.get(beerId);
+                    if (stock != null) {
+                        stock.base -= quantity;
+                    }
+                });
+            } while (applied.reservations() == batchSize);
+
+            reconcile();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private record Applied(int reservations, Map<UUID, Integer> totals) {}
+
+    private Applied applyBatch() {
+        List<InventoryReservation> batch = reservationRepository.findAllByOrderByCreatedDate(PageRequest.ofSize(batchSize));
+        if (batch.isEmpty()) {
+            return new Applied(0, Map.of());
+        }
+
+        Map<UUID, Integer> totals = new TreeMap<>(); //beer id order, this transaction updates the rows in a fixed order
+        batch.forEach(reservation -> totals.merge(reservation.getBeerId(), reservation.getQuantity(), Integer::sum));
+
+        totals.forEach((beerId, quantity) -> {
+            beerRepository.consume(beerId, quantity);
+            beerDtoCache.evict(beerId);
+        });
+        reservationRepository.deleteAllInBatch(batch);
+        catalogGeneration.bump();
+        log.debug("Inventory ledger applied " + batch.size() + " reservations to " + totals.size() + " beers");
+
+        return new Applied(batch.size(), totals);
+    }
+
+    //Anything other writers did to the stock of a beer in memory shows up as a difference to the last seen stock
+    private void reconcile() {
+        if (stocks.isEmpty()) {
+            return;
+        }
+        for (BeerStockView view : beerRepository.findStockByIdIn(stocks.keySet())) {
+            Stock stock = stocks.get(view.getId());
+            long onHand = view.getQuantityOnHand() == null ? 0 : view.getQuantityOnHand();
+
+            if (stock != null && onHand != stock.base) {
+                stock.available.add(onHand - stock.base);
+                stock.base = onHand;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Inventory ledger flush failed, the journal is kept and retried on the next flush", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        flushQuietly();
+    }
+}
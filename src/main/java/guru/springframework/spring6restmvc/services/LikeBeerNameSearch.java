@@ -0,0 +1,37 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+//The original '%name%' search. No index can serve it, so every call scans the beer table
+@Service
+@ConditionalOnProperty(name = "beer.search.backend", havingValue = "like", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LikeBeerNameSearch implements BeerNameSearch {
+
+    private final BeerRepository beerRepository;
+
+    @Override
+    public Page<BeerDTO> search(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        if (beerStyle == null) {
+            return beerRepository.findAllDtosByBeerNameLike("%" + beerName + "%", pageable);
+        }
+        return beerRepository.findAllDtosByBeerNameLikeAndBeerStyle("%" + beerName + "%", beerStyle, pageable);
+    }
+
+    @Override
+    public Page<UUID> searchIds(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        if (beerStyle == null) {
+            return beerRepository.findIdsByBeerNameLike("%" + beerName + "%", pageable);
+        }
+        return beerRepository.findIdsByBeerNameLikeAndBeerStyle("%" + beerName + "%", beerStyle, pageable);
+    }
+}
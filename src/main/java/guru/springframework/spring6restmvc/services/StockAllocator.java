@@ -0,0 +1,21 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.BeerOrderLine;
+
+import java.util.UUID;
+
+/**
+ * How order placement takes stock. Pick one with the beer.order.allocation property: update (default, one
+ * conditional UPDATE per line) or ledger (in-memory striped reservations written behind, single instance only).
+ */
+public interface StockAllocator {
+
+    //All or nothing, true when the full quantity was taken
+    boolean allocate(UUID beerId, int quantity);
+
+    //Gives back an allocation whose order could not be written
+    void release(UUID beerId, int quantity);
+
+    //Called inside the order transaction for every line that got stock
+    void allocated(BeerOrderLine beerOrderLine);
+}
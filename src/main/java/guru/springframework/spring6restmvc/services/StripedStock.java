@@ -0,0 +1,124 @@
+package guru.springframework.spring6restmvc.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock counter split into stripes, so threads reserving the same beer mostly CAS different cache lines.
+ * A reservation is taken from the caller's home stripe when it can be; otherwise it is collected from
+ * all stripes and handed back if the total falls short. Lock-free: no thread ever waits on another.
+ *
+ * No stripe ever goes below zero. A negative delta (a reconcile that lowers the stock, or a negative initial
+ * stock) is taken from all stripes, and what they can't cover is kept as a debt. A reservation settles the
+ * debt before it takes anything, so the stock is never oversold: sum() is the stripes minus the debt.
+ */
+public final class StripedStock {
+
+    //8 longs = 64 bytes between two stripes, one cache line each
+    private static final int PAD = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+    private final AtomicLong debt = new AtomicLong();
+
+    public StripedStock(int stripes, long initial) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        if (initial < 0) {
+            debt.set(-initial);
+            return;
+        }
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PAD, initial / stripes + (i < initial % stripes ? 1 : 0));
+        }
+    }
+
+    //All or nothing
+    public boolean tryReserve(long quantity) {
+        if (debt.get() > 0 && !settleDebt()) {
+            return false;
+        }
+        int home = home();
+
+        //Fast path: the home stripe covers it
+        long value = cells.get(home * PAD);
+        if (value >= quantity && cells.compareAndSet(home * PAD, value, value - quantity)) {
+            return true;
+        }
+
+        //A short stripe can't fail a reservation the other stripes can cover, so collect from all of them
+        long taken = collect(home, quantity);
+        if (taken == quantity) {
+            return true;
+        }
+        cells.getAndAdd(home * PAD, taken);
+        return false;
+    }
+
+    //Releases and reconciliation deltas, which may be negative
+    public void add(long quantity) {
+        if (quantity > 0) {
+            cells.getAndAdd(home() * PAD, quantity - pay(quantity));
+        } else if (quantity < 0) {
+            long taken = collect(home(), -quantity);
+            debt.addAndGet(-quantity - taken);
+        }
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum - debt.get();
+    }
+
+    //Pays the debt from the stripes, true once there is none left
+    private boolean settleDebt() {
+        long owed = debt.get();
+        if (owed <= 0) {
+            return true;
+        }
+        int home = home();
+        long taken = collect(home, owed);
+        cells.getAndAdd(home * PAD, taken - pay(taken)); //another thread may have paid part of it meanwhile
+        return debt.get() == 0;
+    }
+
+    //Takes up to quantity off the debt, returns what it took
+    private long pay(long quantity) {
+        while (true) {
+            long owed = debt.get();
+            long paid = Math.min(owed, quantity);
+            if (paid <= 0 || debt.compareAndSet(owed, owed - paid)) {
+                return Math.max(paid, 0);
+            }
+        }
+    }
+
+    private long collect(int home, long quantity) {
+        long taken = 0;
+        for (int i = 0; i < stripes && taken < quantity; i++) {
+            taken += takeUpTo((home + i) % stripes, quantity - taken);
+        }
+        return taken;
+    }
+
+    private long takeUpTo(int stripe, long wanted) {
+        while (true) {
+            long value = cells.get(stripe * PAD);
+            if (value <= 0) {
+                return 0;
+            }
+            long take = Math.min(value, wanted);
+            if (cells.compareAndSet(stripe * PAD, value, value - take)) {
+                return take;
+            }
+        }
+    }
+
+    private int home() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L; //thread ids are sequential, spread them
+        return (int) ((hash >>> 33) % stripes);
+    }
+}
@@ -0,0 +1,25 @@
+package guru.springframework.spring6restmvc.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//In-memory state (cache, name index) follows the database only once a write commits
+final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    //Runs the action after the current transaction commits, right away without one. A rolled back write never runs it
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
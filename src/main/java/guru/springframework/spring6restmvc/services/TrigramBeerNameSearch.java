@@ -0,0 +1,256 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.BeerSearchView;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-process trigram inverted index over beer names. A search intersects the posting lists of the
+ * query's trigrams, confirms the substring match in memory, sorts and pages the hits, and then loads
+ * only the beers of the requested page by primary key, as a DTO projection. The result is the same as the '%name%' LIKE
+ * search, without scanning the table.
+ *
+ * The index is built when the application is ready (or on first use). Hibernate post-commit listeners
+ * keep it in sync with every committed insert, update and delete of a Beer entity. Writes that skip
+ * the persistence context (bulk JPQL or native SQL) have to report to {@link #updated} or {@link #deleted}.
+ *
+ * Opt-in (beer.search.backend=trigram), for a single instance that owns its beer table: the index lives in this JVM
+ * and is never rebuilt, so writes from other instances, migrations or direct SQL are not seen until a restart.
+ * Names are ordered case-insensitively, like MySQL's default collation, and % or _ in a query match themselves.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "beer.search.backend", havingValue = "trigram")
+@RequiredArgsConstructor
+public class TrigramBeerNameSearch implements BeerNameSearch, PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final int GRAM = 3;
+
+    private static final Comparator<IndexedBeer> BY_NAME = Comparator.comparing(IndexedBeer::lowerCaseName)
+            .thenComparing(indexedBeer -> indexedBeer.id().toString());
+
+    private final BeerRepository beerRepository;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Map<UUID, IndexedBeer> beers = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> postings = new ConcurrentHashMap<>();
+    //Beers deleted before the load finished, the load may still have read their rows
+    private final Set<UUID> removedBeforeLoad = new HashSet<>();
+    private volatile boolean loaded;
+
+    record IndexedBeer(UUID id, String beerName, String lowerCaseName, BeerStyle beerStyle) {}
+
+    @PostConstruct
+    void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    @Override
+    public Page<BeerDTO> search(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        if (beerName.length() < GRAM) { //Too short to have a trigram
+            return new LikeBeerNameSearch(beerRepository).search(beerName, beerStyle, pageable);
+        }
+        Page<UUID> ids = searchIds(beerName, beerStyle, pageable);
+
+        return new PageImpl<>(BeerNameSearch.inOrder(ids.getContent(), beerRepository.findAllDtosByIdIn(ids.getContent())),
+                pageable, ids.getTotalElements());
+    }
+
+    @Override
+    public Page<UUID> searchIds(String beerName, BeerStyle beerStyle, Pageable pageable) {
+        String needle = beerName.toLowerCase(Locale.ROOT);
+
+        if (needle.length() < GRAM) {
+            return new LikeBeerNameSearch(beerRepository).searchIds(beerName, beerStyle, pageable);
+        }
+        ensureLoaded();
+
+        List<IndexedBeer> hits = candidates(needle).stream()
+                .map(beers::get)
+                .filter(Objects::nonNull)
+                .filter(indexedBeer -> indexedBeer.lowerCaseName().contains(needle))
+                .filter(indexedBeer -> beerStyle == null || beerStyle == indexedBeer.beerStyle())
+                .sorted(BY_NAME)
+                .collect(Collectors.toList());
+
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        List<UUID> pageIds = hits.subList(from, to).stream().map(IndexedBeer::id).collect(Collectors.toList());
+
+        return new PageImpl<>(pageIds, pageable, hits.size());
+    }
+
+    public void index(UUID id, String beerName, BeerStyle beerStyle) {
+        IndexedBeer indexedBeer = new IndexedBeer(id, beerName, beerName.toLowerCase(Locale.ROOT), beerStyle);
+        IndexedBeer previous = beers.put(id, indexedBeer);
+
+        if (previous != null && !previous.lowerCaseName().equals(indexedBeer.lowerCaseName())) {
+            trigrams(previous.lowerCaseName()).forEach(gram -> unpost(gram, id));
+        }
+        trigrams(indexedBeer.lowerCaseName()).forEach(gram -> post(gram, id));
+    }
+
+    public void remove(UUID id) {
+        if (!loaded) {
+            synchronized (this) { //waits for a running load, which then can't index the beer again
+                if (!loaded) {
+                    removedBeforeLoad.add(id);
+                }
+            }
+        }
+        IndexedBeer previous = beers.remove(id);
+
+        if (previous != null) {
+            trigrams(previous.lowerCaseName()).forEach(gram -> unpost(gram, id));
+        }
+    }
+
+    @Override
+    public void updated(UUID id, String beerName, BeerStyle beerStyle) {
+        if (beerName == null && beerStyle == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            IndexedBeer previous = beers.get(id);
+            if (previous != null) {
+                index(id, beerName != null ? beerName : previous.beerName(),
+                        beerStyle != null ? beerStyle : previous.beerStyle());
+            } else if (beerName != null && beerStyle != null) {
+                index(id, beerName, beerStyle);
+            } //else not loaded yet, the load reads the committed row
+        });
+    }
+
+    @Override
+    public void deleted(UUID id) {
+        TransactionCallbacks.afterCommit(() -> remove(id));
+    }
+
+    private synchronized void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        List<BeerSearchView> views = beerRepository.findAllSearchViews();
+        views.stream()
+                .filter(view -> !beers.containsKey(view.getId())) //a committed write may already be newer
+                .filter(view -> !removedBeforeLoad.contains(view.getId())) //a delete that committed during the read
+                .forEach(view -> index(view.getId(), view.getBeerName(), view.getBeerStyle()));
+        loaded = true;
+        removedBeforeLoad.clear();
+
+        log.debug("Beer name index loaded with " + beers.size() + " beers and " + postings.size() + " trigrams");
+    }
+
+    //Ids whose names contain every trigram of the needle, starting from the rarest trigram
+    private Set<UUID> candidates(String needle) {
+        List<Set<UUID>> lists = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            Set<UUID> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<UUID> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private void post(String gram, UUID id) {
+        postings.compute(gram, (key, ids) -> {
+            Set<UUID> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            updated.add(id);
+            return updated;
+        });
+    }
+
+    private void unpost(String gram, UUID id) {
+        postings.computeIfPresent(gram, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static Set<String> trigrams(String lowerCaseName) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= lowerCaseName.length(); i++) {
+            grams.add(lowerCaseName.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Beer beer) {
+            index(beer.getId(), beer.getBeerName(), beer.getBeerStyle());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Beer beer) {
+            index(beer.getId(), beer.getBeerName(), beer.getBeerStyle());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Beer) {
+            remove((UUID) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return Beer.class.equals(persister.getMappedClass());
+    }
+
+    //Rolled back writes never reached the database, so there is nothing to undo in the index
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+}
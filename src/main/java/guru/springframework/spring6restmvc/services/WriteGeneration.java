@@ -0,0 +1,21 @@
+package guru.springframework.spring6restmvc.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter that writes bump once they commit, so anything keyed by it (cached responses, coalesced reads) is stale
+ * in O(1) without looking at its keys. Read the generation before loading: a load that races with a write is then
+ * kept under the old generation, which nobody asks for any more.
+ */
+public abstract class WriteGeneration {
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public long current() {
+        return generation.get();
+    }
+
+    public void bump() {
+        TransactionCallbacks.afterCommit(generation::incrementAndGet);
+    }
+}
@@ -0,0 +1,8 @@
+package guru.springframework.spring6restmvc.services;
+
+//Outcome of a conditional write: done, no such row, or the row no longer has the version the caller expected
+public enum WriteResult {
+    WRITTEN,
+    NOT_FOUND,
+    CONFLICT
+}
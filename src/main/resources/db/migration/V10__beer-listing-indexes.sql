@@ -0,0 +1,4 @@
+-- Backs the listing by style: WHERE beer_style = ? ORDER BY beer_name, id reads the matching rows already in order,
+-- no filesort, and the count for the page totals is answered from the index alone.
+-- The unfiltered listing uses beer_name_id_idx from V6__beer-name-keyset-index.sql
+CREATE INDEX beer_style_name_id_idx ON beer (beer_style, beer_name, id);
@@ -0,0 +1,3 @@
+-- Backs the listing by category: WHERE category_id = ? finds the beers of a category from the index alone.
+-- The primary key (beer_id, category_id) only helps to find the categories of a beer
+CREATE INDEX beer_category_category_beer_idx ON beer_category (category_id, beer_id);
@@ -0,0 +1,2 @@
+-- Backs the keyset (seek) listing: WHERE beer_name > ? OR (beer_name = ? AND id > ?) ORDER BY beer_name, id
+CREATE INDEX beer_name_id_idx ON beer (beer_name, id);
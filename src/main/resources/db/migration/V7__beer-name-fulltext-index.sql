@@ -0,0 +1,2 @@
+-- Used by the fulltext beer name search backend (beer.search.backend=fulltext)
+CREATE FULLTEXT INDEX beer_name_ft_idx ON beer (beer_name);
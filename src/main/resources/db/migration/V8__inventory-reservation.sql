@@ -0,0 +1,11 @@
+-- Write-behind journal of the inventory ledger (beer.order.allocation=ledger)
+CREATE TABLE inventory_reservation
+(
+    id                 VARCHAR(36) NOT NULL PRIMARY KEY,
+    beer_id            VARCHAR(36) NOT NULL,
+    beer_order_line_id VARCHAR(36),
+    quantity           INT         NOT NULL,
+    created_date       DATETIME(6) DEFAULT NULL,
+    INDEX inventory_reservation_beer_idx (beer_id),
+    INDEX inventory_reservation_created_idx (created_date)
+) ENGINE = InnoDB;
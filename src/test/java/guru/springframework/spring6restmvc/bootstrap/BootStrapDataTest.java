@@ -3,8 +3,10 @@ package guru.springframework.spring6restmvc.bootstrap;
 import guru.springframework.spring6restmvc.model.BeerCSVRecord;
 import guru.springframework.spring6restmvc.repositories.BeerRepository;
 import guru.springframework.spring6restmvc.repositories.CustomerRepository;
-import guru.springframework.spring6restmvc.services.BeerCsvService;
+import guru.springframework.spring6restmvc.services.BeerCsvImportService;
+import guru.springframework.spring6restmvc.services.BeerCsvImportServiceImpl;
 import guru.springframework.spring6restmvc.services.BeerCsvServiceImpl;
+import guru.springframework.spring6restmvc.services.CatalogGeneration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +24,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.hamcrest.core.Is.is;
 
 @DataJpaTest
-@Import(BeerCsvServiceImpl.class) /*Because we are using a test splice, spring dosen't do full component scan.
+@Import({BeerCsvServiceImpl.class, BeerCsvImportServiceImpl.class, CatalogGeneration.class}) /*Because we are using a test splice, spring dosen't do full component scan.
                                 So we manully import the impl class */
 class BootStrapDataTest {
 
@@ -33,13 +35,13 @@ class BootStrapDataTest {
     CustomerRepository customerRepository;
 
     @Autowired
-    BeerCsvService beerCsvService;
+    BeerCsvImportService beerCsvImportService;
 
     BootStrapData bootStrapData;
 
     @BeforeEach
     void setUp() {
-        bootStrapData = new BootStrapData(beerRepository, customerRepository, beerCsvService);
+        bootStrapData = new BootStrapData(beerRepository, customerRepository, beerCsvImportService);
     }
 
     @Test
@@ -0,0 +1,103 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, Duration.ofMillis(50), meterRegistry);
+
+    @Test
+    void admitsWhileUnderTheLimit() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beer"), response, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beer"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("http.admission.in_flight").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    void rejectsWhenSaturated() throws Exception {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        //Holds the only permit until released
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beer"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            inside.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        holder.start();
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beer"), response, new MockFilterChain());
+
+        release.countDown();
+        holder.join();
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("http.admission.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncRequestKeepsItsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/beer/export");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertThat(meterRegistry.get("http.admission.in_flight").gauge().value()).isEqualTo(1);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(meterRegistry.get("http.admission.in_flight").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    void takesThePermitsEachRequestAsksFor() throws Exception {
+        AdmissionControlFilter transfers = new AdmissionControlFilter("transfers", 4, Duration.ofMillis(50),
+                request -> Integer.parseInt(request.getParameter("permits")), meterRegistry);
+        AtomicReference<Double> inFlight = new AtomicReference<>();
+
+        MockHttpServletRequest parallel = new MockHttpServletRequest("POST", "/api/v1/beer/import");
+        parallel.addParameter("permits", "4");
+        transfers.doFilter(parallel, new MockHttpServletResponse(), (req, res) ->
+                inFlight.set(meterRegistry.get("http.admission.in_flight").tag("limit", "transfers").gauge().value()));
+        assertThat(inFlight.get()).isEqualTo(4);
+
+        //Not limited by this filter
+        MockHttpServletRequest exempt = new MockHttpServletRequest("GET", "/api/v1/beer");
+        exempt.addParameter("permits", "0");
+        MockFilterChain chain = new MockFilterChain();
+        transfers.doFilter(exempt, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(exempt);
+        assertThat(meterRegistry.get("http.admission.in_flight").tag("limit", "transfers").gauge().value()).isEqualTo(0);
+    }
+}
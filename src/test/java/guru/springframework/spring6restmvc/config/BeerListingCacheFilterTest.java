@@ -0,0 +1,113 @@
+package guru.springframework.spring6restmvc.config;
+
+import guru.springframework.spring6restmvc.services.CatalogGeneration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerListingCacheFilterTest {
+
+    CatalogGeneration catalogGeneration = new CatalogGeneration();
+
+    BeerListingCacheFilter filter = new BeerListingCacheFilter(catalogGeneration, DataSize.ofMegabytes(1),
+            Duration.ofMinutes(10), true, new SimpleMeterRegistry());
+
+    AtomicInteger listings = new AtomicInteger();
+
+    //Stands in for the controller, each call renders the listing again
+    FilterChain listing(String body, int status) {
+        return (request, response) -> {
+            listings.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    MockHttpServletResponse get(String query, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/beer");
+        request.setQueryString(query);
+        for (String parameter : query.split("&")) {
+            String[] nameValue = parameter.split("=");
+            request.addParameter(nameValue[0], nameValue[1]);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    void servesTheSameListingFromTheCache() throws Exception {
+        MockHttpServletResponse miss = get("beerStyle=IPA&pageSize=10", listing("{\"content\":[]}", 200));
+        MockHttpServletResponse hit = get("pageSize=10&beerStyle=IPA", listing("{\"other\":[]}", 200));
+
+        assertThat(listings).hasValue(1);
+        assertThat(miss.getHeader(SqlTimingFilter.SERVER_TIMING)).isEqualTo("cache;desc=\"miss\"");
+        assertThat(hit.getHeader(SqlTimingFilter.SERVER_TIMING)).isEqualTo("cache;desc=\"hit\"");
+        assertThat(hit.getContentAsString()).isEqualTo("{\"content\":[]}");
+        assertThat(hit.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    @Test
+    void missesOnceTheCatalogChanged() throws Exception {
+        get("beerStyle=IPA", listing("{\"version\":1}", 200));
+
+        catalogGeneration.bump(); //no transaction here, so the write is already committed
+        MockHttpServletResponse afterWrite = get("beerStyle=IPA", listing("{\"version\":2}", 200));
+
+        assertThat(listings).hasValue(2);
+        assertThat(afterWrite.getContentAsString()).isEqualTo("{\"version\":2}");
+    }
+
+    @Test
+    void doesNotCacheErrors() throws Exception {
+        get("beerStyle=NOPE", listing("{\"status\":400}", 400));
+        MockHttpServletResponse second = get("beerStyle=NOPE", listing("{\"status\":400}", 400));
+
+        assertThat(listings).hasValue(2);
+        assertThat(second.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void sendsTheGzippedCopyToClientsThatAcceptIt() throws Exception {
+        String body = "{\"content\":[" + "{\"beerName\":\"Galaxy Cat\"},".repeat(100) + "{}]}";
+        get("pageNumber=1", listing(body, 200));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/beer");
+        request.addParameter("pageNumber", "1");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, listing(body, 200));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getContentAsByteArray().length).isLessThan(body.length());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+        }
+    }
+
+    @Test
+    void normalizesTheQuery() {
+        assertThat(BeerListingCacheFilter.query(Map.of("pageSize", new String[]{"10"}, "beerName", new String[]{"a&b"})))
+                .isEqualTo("beerName=a%26b&pageSize=10");
+        assertThat(BeerListingCacheFilter.acceptsGzip("deflate, gzip;q=0")).isFalse();
+        assertThat(BeerListingCacheFilter.acceptsGzip("deflate, gzip;q=0.5")).isTrue();
+        assertThat(BeerListingCacheFilter.acceptsJson("text/csv")).isFalse();
+        assertThat(BeerListingCacheFilter.acceptsJson("application/json, */*")).isTrue();
+    }
+}
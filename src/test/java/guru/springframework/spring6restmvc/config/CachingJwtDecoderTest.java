@@ -0,0 +1,87 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingJwtDecoderTest {
+
+    static final String ISSUER = "http://localhost:9000";
+
+    LocalJwks localJwks = new LocalJwks(ISSUER);
+    AtomicInteger keyLoads = new AtomicInteger();
+    AtomicInteger verifications = new AtomicInteger();
+
+    RefreshingJwkSource jwkSource;
+    JwtDecoder jwtDecoder;
+
+    @BeforeEach
+    void setUp() {
+        jwkSource = new RefreshingJwkSource(() -> {
+            keyLoads.incrementAndGet();
+            return localJwks.jwkSet();
+        }, Duration.ofMinutes(5), Duration.ZERO);
+        jwkSource.warmUp();
+
+        JwtDecoder nimbusJwtDecoder = JwtDecoderConfig.nimbusJwtDecoder(jwkSource, ISSUER);
+        jwtDecoder = new CachingJwtDecoder(token -> {
+            verifications.incrementAndGet();
+            return nimbusJwtDecoder.decode(token);
+        }, 100, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwkSource.destroy();
+    }
+
+    @Test
+    void verifiesOnceThenServesFromCache() {
+        String token = localJwks.mint("messaging-client", "message-read", Duration.ofMinutes(5));
+
+        assertThat(jwtDecoder.decode(token).getSubject()).isEqualTo("messaging-client");
+        assertThat(jwtDecoder.decode(token).getSubject()).isEqualTo("messaging-client");
+
+        assertThat(verifications.get()).isEqualTo(1);
+        assertThat(keyLoads.get()).isEqualTo(1); //pre-warmed, no fetch on the request path
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        String token = localJwks.mint("messaging-client", "message-read", Duration.ofMinutes(5));
+        String tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+        assertThrows(JwtException.class, () -> jwtDecoder.decode(tampered));
+    }
+
+    @Test
+    void cachedEntryEndsWithTheToken() throws InterruptedException {
+        String token = localJwks.mint("messaging-client", "message-read", Duration.ofSeconds(1));
+
+        jwtDecoder.decode(token);
+        Thread.sleep(1100);
+        jwtDecoder.decode(token); //still inside the validators' clock skew, but no longer cached
+
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    @Test
+    void unknownKeyTriggersRefresh() {
+        jwtDecoder.decode(localJwks.mint("messaging-client", "message-read", Duration.ofMinutes(5)));
+
+        localJwks.rotate();
+        String signedWithNewKey = localJwks.mint("messaging-client", "message-read", Duration.ofMinutes(5));
+
+        assertThat(jwtDecoder.decode(signedWithNewKey).getSubject()).isEqualTo("messaging-client");
+        assertThat(keyLoads.get()).isEqualTo(2);
+    }
+}
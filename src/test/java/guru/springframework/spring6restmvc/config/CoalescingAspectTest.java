@@ -0,0 +1,173 @@
+package guru.springframework.spring6restmvc.config;
+
+import guru.springframework.spring6restmvc.services.Coalesced;
+import guru.springframework.spring6restmvc.services.WriteGeneration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CoalescingAspectTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    static class ReadsGeneration extends WriteGeneration {
+    }
+
+    ReadsGeneration generation = new ReadsGeneration();
+
+    Duration waitTimeout = Duration.ofSeconds(5);
+
+    //Each load blocks until released, so the callers pile up behind it
+    static class SlowReads {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Coalesced(ReadsGeneration.class)
+        public String read(String key) throws InterruptedException {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            if (key.equals("broken")) {
+                throw new IllegalStateException("no such row");
+            }
+            return key.toUpperCase();
+        }
+    }
+
+    SlowReads target = new SlowReads();
+
+    SlowReads proxy() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new CoalescingAspect(type -> generation, waitTimeout, meterRegistry));
+        return factory.getProxy();
+    }
+
+    double count(String result) {
+        return meterRegistry.get(CoalescingAspect.METRIC).tag("method", "read").tag("result", result).counter().count();
+    }
+
+    @Test
+    void concurrentCallsShareOneLoad() throws Exception {
+        SlowReads reads = proxy();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> first = executor.submit(() -> reads.read("galaxy cat"));
+            assertThat(target.loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> reads.read("galaxy cat")));
+            }
+            //Wait until every follower joined the flight before letting the load finish
+            while (count("collapsed") < 7) {
+                Thread.sleep(5);
+            }
+            target.release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("GALAXY CAT");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("GALAXY CAT");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(target.loads).hasValue(1);
+        assertThat(count("loaded")).isEqualTo(1);
+        assertThat(meterRegistry.get(CoalescingAspect.METRIC + ".in_flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void followersGetTheException() throws Exception {
+        SlowReads reads = proxy();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> reads.read("broken"));
+            assertThat(target.loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = executor.submit(() -> reads.read("broken"));
+            while (count("collapsed") < 1) {
+                Thread.sleep(5);
+            }
+            target.release.countDown();
+
+            for (Future<String> call : List.of(first, follower)) {
+                Exception e = assertThrows(Exception.class, () -> call.get(5, TimeUnit.SECONDS));
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(target.loads).hasValue(1);
+    }
+
+    @Test
+    void callsAfterAWriteStartANewLoad() throws Exception {
+        SlowReads reads = proxy();
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<String> beforeWrite = executor.submit(() -> reads.read("galaxy cat"));
+            assertThat(target.loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            generation.bump(); //committed while the first load runs
+            target.release.countDown();
+            assertThat(reads.read("galaxy cat")).isEqualTo("GALAXY CAT");
+            assertThat(beforeWrite.get(5, TimeUnit.SECONDS)).isEqualTo("GALAXY CAT");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(target.loads).hasValue(2);
+        assertThat(count("collapsed")).isZero();
+    }
+
+    @Test
+    void followersStopWaitingForAStuckLoad() throws Exception {
+        waitTimeout = Duration.ofMillis(50);
+        SlowReads reads = proxy();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> stuck = executor.submit(() -> reads.read("galaxy cat"));
+            assertThat(target.loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            //Runs the read itself once the timeout is up, released here so it can finish
+            Future<String> follower = executor.submit(() -> reads.read("galaxy cat"));
+            while (count("timed_out") < 1) {
+                Thread.sleep(5);
+            }
+            target.release.countDown();
+
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("GALAXY CAT");
+            assertThat(stuck.get(5, TimeUnit.SECONDS)).isEqualTo("GALAXY CAT");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(target.loads).hasValue(2);
+    }
+
+    @Test
+    void laterCallsLoadAgain() throws Exception {
+        SlowReads reads = proxy();
+        target.release.countDown();
+
+        reads.read("galaxy cat");
+        reads.read("galaxy cat");
+
+        assertThat(target.loads).hasValue(2);
+        assertThat(count("collapsed")).isZero();
+    }
+}
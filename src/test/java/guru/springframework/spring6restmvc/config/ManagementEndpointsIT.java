@@ -0,0 +1,65 @@
+package guru.springframework.spring6restmvc.config;
+
+import guru.springframework.spring6restmvc.services.BeerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Tests turn metrics export off by default, the Prometheus registry and endpoint need it back on
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "management.server.port=0")
+class ManagementEndpointsIT {
+
+    @LocalServerPort
+    int serverPort;
+
+    @LocalManagementPort
+    int managementPort;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    BeerService beerService;
+
+    String management(String path) {
+        return "http://localhost:" + managementPort + path;
+    }
+
+    @Test
+    void testPrometheusScrapeWithoutToken() {
+        beerService.listBeers(null, null, false, 1, 25);
+        restTemplate.getForEntity("http://localhost:" + serverPort + "/api/v1/beer", String.class);
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity(management("/actuator/prometheus"), String.class);
+
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("http_server_requests_seconds_bucket")
+                .contains("beer_service_seconds_bucket{application=\"spring-6-rest-mvc\",class=\"guru.springframework.spring6restmvc.services.BeerServiceJPA\",exception=\"none\",method=\"listBeers\"")
+                .contains("hikaricp_connections_acquire_seconds_bucket{application=\"spring-6-rest-mvc\",pool=\"RestDB-Pool\"")
+                .contains("jvm_gc_");
+    }
+
+    @Test
+    void testHealthWithoutToken() {
+        assertThat(restTemplate.getForEntity(management("/actuator/health"), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void testOtherEndpointsStillNeedAToken() {
+        assertThat(restTemplate.getForEntity(management("/actuator/caches"), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(restTemplate.getForEntity("http://localhost:" + serverPort + "/api/v1/beer", String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+}
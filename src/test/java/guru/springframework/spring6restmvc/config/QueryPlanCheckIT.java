@@ -0,0 +1,39 @@
+package guru.springframework.spring6restmvc.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "beer.query-plan-check.enabled=true")
+class QueryPlanCheckIT {
+
+    @Autowired
+    QueryPlanCheck queryPlanCheck;
+
+    @Test
+    void listingQueriesUseTheirIndexes() {
+        List<QueryPlanCheck.Plan> plans = queryPlanCheck.check();
+
+        assertThat(plans).extracting(QueryPlanCheck.Plan::query)
+                .contains("findAllDtos", "findAllDtosByBeerStyle", "findAllAfter", "findSliceDtosByBeerStyle");
+        assertThat(plans).filteredOn(plan -> plan.query().equals("findAllDtosByBeerStyle"))
+                .hasSize(2) //page and count
+                .allSatisfy(plan -> assertThat(plan.plan()).contains("BEER_STYLE_NAME_ID_IDX"));
+        assertThat(plans).filteredOn(plan -> plan.query().equals("findAllAfter"))
+                .allSatisfy(plan -> assertThat(plan.plan()).contains("BEER_NAME_ID_IDX"));
+        assertThat(plans).filteredOn(QueryPlanCheck.Plan::fullScan).isEmpty();
+    }
+
+    @Test
+    void detectsFullScans() {
+        assertThat(QueryPlanCheck.isFullScan(Map.of("plan", "SELECT * FROM PUBLIC.BEER B /* PUBLIC.BEER.tableScan */"))).isTrue();
+        assertThat(QueryPlanCheck.isFullScan(Map.of("plan", "SELECT COUNT(*) FROM PUBLIC.BEER B /* PUBLIC.BEER.tableScan */ /* direct lookup */"))).isFalse();
+        assertThat(QueryPlanCheck.isFullScan(Map.of("table", "b1_0", "type", "ALL"))).isTrue();
+        assertThat(QueryPlanCheck.isFullScan(Map.of("table", "b1_0", "type", "ref"))).isFalse();
+    }
+}
@@ -0,0 +1,115 @@
+package guru.springframework.spring6restmvc.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlInstrumentationTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    SqlInstrumentation instrumentation = new SqlInstrumentation(meterRegistry, Duration.ofMinutes(1));
+
+    InstrumentedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sql-instrumentation;DB_CLOSE_DELAY=-1");
+
+        dataSource = new InstrumentedDataSource(h2, instrumentation);
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists item (id int primary key, name varchar(20))");
+            statement.execute("delete from item");
+        }
+    }
+
+    void runStatements() {
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement("insert into item values (?, ?)")) {
+                for (int i = 0; i < 3; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "item " + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement select = connection.prepareStatement("select count(*) from item");
+                 ResultSet resultSet = select.executeQuery()) {
+                resultSet.next();
+                assertThat(resultSet.getInt(1)).isEqualTo(3);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void countsStatementsPerRequest() throws Exception {
+        SqlTimingFilter filter = new SqlTimingFilter(instrumentation, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/item"), response, (request, servletResponse) -> {
+            runStatements();
+            servletResponse.getWriter().write("ok");
+        });
+
+        assertThat(response.getHeader(SqlTimingFilter.SERVER_TIMING)).startsWith("db;dur=").endsWith("desc=\"2 statements\"");
+        assertThat(meterRegistry.get("http.server.requests.jdbc.statements").tag("handler", "none")
+                .summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get("http.server.requests.jdbc.time").tag("handler", "none").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void countsStatementsOutsideRequests() {
+        double before = meterRegistry.get("jdbc.statements").timer().count();
+
+        runStatements();
+
+        assertThat(meterRegistry.get("jdbc.statements").timer().count() - before).isEqualTo(2);
+        assertThat(meterRegistry.find("http.server.requests.jdbc.statements").summary()).isNull();
+    }
+
+    @Test
+    void countsSlowStatements() throws Exception {
+        SqlInstrumentation everythingIsSlow = new SqlInstrumentation(meterRegistry, Duration.ZERO);
+        InstrumentedDataSource slowDataSource = new InstrumentedDataSource(dataSource.getTargetDataSource(), everythingIsSlow);
+
+        try (Connection connection = slowDataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("select 1");
+        }
+
+        assertThat(meterRegistry.get("jdbc.statements.slow").tag("handler", "none").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void capturesStatementsWithParameters() throws Exception {
+        List<SqlInstrumentation.CapturedStatement> statements = instrumentation.capture(this::runStatements);
+
+        assertThat(statements).extracting(SqlInstrumentation.CapturedStatement::sql)
+                .containsExactly("insert into item values (?, ?)", "select count(*) from item");
+        assertThat(statements.get(0).parameters()).containsEntry(1, 2).containsEntry(2, "item 2");
+        assertThat(statements.get(1).parameters()).isEmpty();
+
+        //Nothing is kept outside a capture
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("select 1");
+        }
+        assertThat(instrumentation.capturing()).isFalse();
+    }
+
+}
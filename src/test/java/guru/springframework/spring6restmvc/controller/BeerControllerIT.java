@@ -3,18 +3,27 @@ package guru.springframework.spring6restmvc.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.opencsv.CSVReader;
+import guru.springframework.spring6restmvc.config.BeerListingCacheFilter;
+import guru.springframework.spring6restmvc.config.SqlTimingFilter;
 import guru.springframework.spring6restmvc.entities.Beer;
 import guru.springframework.spring6restmvc.mappers.BeerMapper;
+import guru.springframework.spring6restmvc.model.BeerCursorPageDTO;
 import guru.springframework.spring6restmvc.model.BeerDTO;
 import guru.springframework.spring6restmvc.model.BeerStyle;
 import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hamcrest.core.IsNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,17 +34,26 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -55,6 +73,15 @@ class BeerControllerIT {
     @Autowired
     WebApplicationContext wac;
 
+    @Autowired
+    FilterRegistrationBean<SqlTimingFilter> sqlTimingFilter;
+
+    @Autowired
+    FilterRegistrationBean<BeerListingCacheFilter> beerListingCacheFilter;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     MockMvc mockMvc;
 
     @BeforeEach
@@ -128,6 +155,101 @@ class BeerControllerIT {
                 .andExpect(jsonPath("$.content[0].quantityOnHand").value(IsNull.notNullValue()));
     }
 
+    @Test
+    void testListBeersSqlTiming() throws Exception {
+        MockMvc timedMockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .addFilters(sqlTimingFilter.getFilter())
+                .apply(springSecurity())
+                .build();
+
+        timedMockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .queryParam("pageSize", "50"))
+                .andExpect(status().isOk())
+                //page + count
+                .andExpect(header().string(SqlTimingFilter.SERVER_TIMING, endsWith("desc=\"2 statements\"")));
+
+        assertThat(meterRegistry.get("http.server.requests.jdbc.statements")
+                .tag("handler", "BeerController.listBeers").summary().count()).isPositive();
+        //Went through the coalescing aspect, as the leader of its own flight
+        assertThat(meterRegistry.get("service.reads").tag("method", "listBeers").tag("result", "loaded")
+                .counter().count()).isPositive();
+        //The pool is still found behind the instrumented data source
+        assertThat(meterRegistry.find("hikaricp.connections.active").gauge()).isNotNull();
+    }
+
+    @Test
+    void testListBeersFromListingCache() throws Exception {
+        MockMvc cachedMockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .addFilters(sqlTimingFilter.getFilter(), beerListingCacheFilter.getFilter())
+                .apply(springSecurity())
+                .build();
+        Beer beer = beerRepository.findAll().get(0);
+
+        cachedMockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerName", beer.getBeerName()))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(SqlTimingFilter.SERVER_TIMING, hasItem("cache;desc=\"miss\"")));
+
+        cachedMockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerName", beer.getBeerName()))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(SqlTimingFilter.SERVER_TIMING, hasItem("cache;desc=\"hit\"")))
+                .andExpect(header().stringValues(SqlTimingFilter.SERVER_TIMING, hasItem(endsWith("desc=\"0 statements\""))))
+                .andExpect(jsonPath("$.content[0].beerName", is(beer.getBeerName())));
+
+        //The write bumps the catalog generation, the next listing is loaded again
+        cachedMockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("price", "99.99"))))
+                .andExpect(status().isNoContent());
+
+        cachedMockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerName", beer.getBeerName()))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(SqlTimingFilter.SERVER_TIMING, hasItem("cache;desc=\"miss\"")))
+                .andExpect(jsonPath("$.content[0].price", is(99.99)));
+    }
+
+    @Test
+    void testPatchBeerConditionalWrites() throws Exception {
+        MockMvc timedMockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .addFilters(sqlTimingFilter.getFilter())
+                .apply(springSecurity())
+                .build();
+        Beer beer = beerRepository.findAll().get(0);
+        Map<String, Object> beerMap = Map.of("version", beer.getVersion(), "beerName", beer.getBeerName());
+
+        timedMockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(beerMap)))
+                .andExpect(status().isNoContent())
+                //the versioned UPDATE, no SELECT before it
+                .andExpect(header().string(SqlTimingFilter.SERVER_TIMING, endsWith("desc=\"1 statements\"")));
+
+        //The same version again is stale now
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(beerMap)))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, EntityTags.of(beer.getId(), beer.getVersion()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("beerName", beer.getBeerName()))))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(beerRepository.findVersionById(beer.getId())).contains(beer.getVersion() + 1);
+    }
+
     @Test
     void tesListBeersByStyleAndNameShowInventoryTrue() throws Exception {
         mockMvc.perform(get(BeerController.BEER_PATH)
@@ -154,6 +276,34 @@ class BeerControllerIT {
                 .andExpect(jsonPath("$.content[0].quantityOnHand").value(IsNull.nullValue()));
     }
 
+    @Test
+    void testListBeersByStyleAndNameWithFields() throws Exception {
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerName", "IPA")
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .queryParam("fields", "beerName,price")
+                        .queryParam("pageSize", "800"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(310)))
+                .andExpect(jsonPath("$.content[0].beerName").exists())
+                .andExpect(jsonPath("$.content[0].price").exists())
+                .andExpect(jsonPath("$.content[0].id").doesNotExist())
+                .andExpect(jsonPath("$.content[0].quantityOnHand").doesNotExist());
+    }
+
+    @Test
+    void testListBeersByStyleWithFields() throws Exception {
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.PALE_ALE.name())
+                        .queryParam("fields", "id,upc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(14)))
+                .andExpect(jsonPath("$.content[0].upc").exists())
+                .andExpect(jsonPath("$.content[0].beerName").doesNotExist());
+    }
+
     @Test
     void tesListBeersByStyleAndName() throws Exception {
         mockMvc.perform(get(BeerController.BEER_PATH)
@@ -175,6 +325,167 @@ class BeerControllerIT {
                 .andExpect(jsonPath("$.content.size()", is(548)));
     }
 
+    @Test
+    void testListBeersByCursorWalksAllPages() {
+        BeerCursorPageDTO page = beerController.listBeersByCursor(null, BeerStyle.IPA, null, "", 200);
+        int total = page.getContent().size();
+
+        while (page.getNextCursor() != null) {
+            page = beerController.listBeersByCursor(null, BeerStyle.IPA, null, page.getNextCursor(), 200);
+            total += page.getContent().size();
+        }
+
+        assertThat(total).isEqualTo(548);
+    }
+
+    @Test
+    void testNameSearchSeesCommittedWrites() {
+        ResponseEntity responseEntity = beerController.handlePost(BeerDTO.builder()
+                .beerName("Xylophone Quokka Saison")
+                .beerStyle(BeerStyle.SAISON)
+                .upc("123")
+                .price(BigDecimal.TEN)
+                .build());
+        UUID savedId = UUID.fromString(responseEntity.getHeaders().getLocation().getPath().split("/")[4]);
+
+        assertThat(beerController.listBeers("phone quok", null, null, null, 1, 25).getContent().size()).isEqualTo(1);
+
+        beerController.deleteById(savedId);
+
+        assertThat(beerController.listBeers("phone quok", null, null, null, 1, 25).getContent()).isEmpty();
+    }
+
+    @Test
+    void testBulkPostNdjson() throws Exception {
+        Beer existing = beerRepository.findAll().get(0);
+        BeerDTO update = beerMapper.beerToBeerDto(existing);
+        update.setQuantityOnHand(4321);
+
+        BeerDTO created = BeerDTO.builder()
+                .beerName("Bulk Loaded Lager")
+                .beerStyle(BeerStyle.LAGER)
+                .upc("123")
+                .price(BigDecimal.TEN)
+                .build();
+        BeerDTO missing = beerMapper.beerToBeerDto(existing);
+        missing.setId(UUID.randomUUID());
+
+        Beer other = beerRepository.findAll().get(1);
+        BeerDTO stale = beerMapper.beerToBeerDto(other);
+        stale.setVersion(other.getVersion() + 1);
+        stale.setQuantityOnHand(1234);
+
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(created),
+                objectMapper.writeValueAsString(BeerDTO.builder().beerName("").build()),
+                "{not json",
+                objectMapper.writeValueAsString(update),
+                objectMapper.writeValueAsString(missing),
+                objectMapper.writeValueAsString(stale));
+
+        MvcResult result = mockMvc.perform(post(BeerController.BEER_BULK_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(6)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[1].status", is("INVALID")))
+                .andExpect(jsonPath("$[2].status", is("INVALID")))
+                .andExpect(jsonPath("$[3].status", is("UPDATED")))
+                .andExpect(jsonPath("$[4].status", is("NOT_FOUND")))
+                .andExpect(jsonPath("$[5].status", is("CONFLICT")))
+                .andExpect(jsonPath("$[5].version", is(other.getVersion())))
+                .andReturn();
+
+        UUID createdId = UUID.fromString(objectMapper.readTree(result.getResponse().getContentAsString())
+                .get(0).get("id").asText());
+
+        assertThat(beerRepository.findById(createdId)).isPresent();
+        assertThat(beerRepository.findById(existing.getId()).get().getQuantityOnHand()).isEqualTo(4321);
+        assertThat(beerRepository.findById(other.getId()).get().getQuantityOnHand()).isEqualTo(other.getQuantityOnHand());
+
+        beerRepository.deleteById(createdId);
+    }
+
+    @Test
+    void testCsvImport() throws Exception {
+        String csv = "\"row\",\"count.x\",\"beer\",\"style\"\n" +
+                "\"90001\",5,\"Import Test Stout\",\"American Stout\"\n" +
+                "\"90002\",6,\"\",\"American IPA\"\n" +
+                "\"not a row\",8,\"Import Test Broken\",\"American IPA\"\n" +
+                "\"90003\",7,\"Import Test Saison\",\"Saison / Farmhouse Ale\"\n";
+
+        mockMvc.perform(post(BeerController.BEER_IMPORT_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead", is(4)))
+                .andExpect(jsonPath("$.rowsImported", is(2)))
+                .andExpect(jsonPath("$.rowsSkipped", is(2)));
+
+        List<Beer> imported = beerRepository.findAllByBeerNameIsLikeIgnoreCase("Import Test%", Pageable.unpaged())
+                .getContent();
+
+        assertThat(imported).extracting(Beer::getBeerStyle)
+                .containsExactlyInAnyOrder(BeerStyle.STOUT, BeerStyle.SAISON);
+
+        beerRepository.deleteAll(imported);
+    }
+
+    @Test
+    void testExportNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get(BeerController.BEER_EXPORT_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //More beers than one fetch, so the export went through at least one flush and clear
+        List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize((int) beerRepository.count()).hasSizeGreaterThan(BeerRepository.EXPORT_FETCH_SIZE);
+
+        List<String> names = new ArrayList<>();
+        for (String line : lines) {
+            BeerDTO beer = objectMapper.readValue(line, BeerDTO.class);
+            assertThat(beer.getId()).isNotNull();
+            names.add(beer.getBeerName());
+        }
+        assertThat(names).isSortedAccordingTo(Comparator.naturalOrder());
+    }
+
+    @Test
+    void testExportCsvByStyle() throws Exception {
+        MvcResult started = mockMvc.perform(get(BeerController.BEER_EXPORT_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .accept("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String[]> rows = new CSVReader(new StringReader(body)).readAll();
+        long ipas = beerRepository.findAllDtosByBeerStyle(BeerStyle.IPA, PageRequest.of(0, 1)).getTotalElements();
+
+        assertThat(rows.get(0)).containsExactly("id", "version", "beerName", "beerStyle", "upc", "quantityOnHand",
+                "price", "createdDate", "updateDate");
+        assertThat(rows).hasSize((int) ipas + 1);
+
+        String[] first = rows.get(1);
+        BeerDTO stored = beerRepository.findAllDtosByIdIn(List.of(UUID.fromString(first[0]))).get(0);
+        assertThat(first[2]).isEqualTo(stored.getBeerName());
+        assertThat(first[3]).isEqualTo(BeerStyle.IPA.name());
+        assertThat(new BigDecimal(first[6])).isEqualByComparingTo(stored.getPrice());
+    }
+
     @Test
     void tesListBeersByName() throws Exception {
         mockMvc.perform(get(BeerController.BEER_PATH)
@@ -223,7 +534,7 @@ class BeerControllerIT {
     @Test
     void testUpdateNotFound() {
         assertThrows(NotFoundException.class, () -> {
-            beerController.updateById(UUID.randomUUID(), BeerDTO.builder().build());
+            beerController.updateById(UUID.randomUUID(), BeerDTO.builder().build(), null);
         });
     }
 
@@ -238,7 +549,7 @@ class BeerControllerIT {
         final String beerName = "UPDATED";
         beerDTO.setBeerName(beerName);
 
-        ResponseEntity responseEntity = beerController.updateById(beer.getId(), beerDTO);
+        ResponseEntity responseEntity = beerController.updateById(beer.getId(), beerDTO, null);
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(204));
 
         Beer updatedBeer = beerRepository.findById(beer.getId()).get();
@@ -268,7 +579,7 @@ class BeerControllerIT {
     @Test
     void testBeerIdNotFound() {
         assertThrows(NotFoundException.class, () -> {
-            beerController.getBeerById(UUID.randomUUID());
+            beerController.getBeerById(UUID.randomUUID(), null);
         });
     }
 
@@ -276,14 +587,14 @@ class BeerControllerIT {
     void testGetById() {
         Beer beer = beerRepository.findAll().get(0);
 
-        BeerDTO dto = beerController.getBeerById(beer.getId());
+        BeerDTO dto = beerController.getBeerById(beer.getId(), null).getBody();
 
         assertThat(dto).isNotNull();
     }
 
     @Test
     void testListBeers() {
-        Page<BeerDTO> dtos = beerController.listBeers(null, null, false, 1, 2413);
+        Page<BeerDTO> dtos = beerController.listBeers(null, null, null, false, 1, 2413);
 
         assertThat(dtos.getContent().size()).isEqualTo(1000);
     }
@@ -293,7 +604,7 @@ class BeerControllerIT {
     @Test
     void testEmptyList() {
         beerRepository.deleteAll();
-        Page<BeerDTO> dtos = beerController.listBeers(null, null, false, 1, 25);
+        Page<BeerDTO> dtos = beerController.listBeers(null, null, null, false, 1, 25);
 
         assertThat(dtos.getContent().size()).isEqualTo(0);
     }
@@ -3,9 +3,17 @@ package guru.springframework.spring6restmvc.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import guru.springframework.spring6restmvc.config.SpringSecurityConfig;
 import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerCursor;
 import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerBulkResultDTO;
+import guru.springframework.spring6restmvc.model.BeerExportFormat;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.services.BeerBulkService;
+import guru.springframework.spring6restmvc.services.BeerCsvImportService;
+import guru.springframework.spring6restmvc.services.BeerExportService;
 import guru.springframework.spring6restmvc.services.BeerService;
 import guru.springframework.spring6restmvc.services.BeerServiceImpl;
+import guru.springframework.spring6restmvc.services.WriteResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -14,9 +22,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.Instant;
 import java.util.*;
@@ -24,8 +34,10 @@ import java.util.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -45,6 +57,15 @@ class BeerControllerTest {
     @MockBean
     BeerService beerService;
 
+    @MockBean
+    BeerBulkService beerBulkService;
+
+    @MockBean
+    BeerCsvImportService beerCsvImportService;
+
+    @MockBean
+    BeerExportService beerExportService;
+
     @Captor
     ArgumentCaptor<UUID> uuidArgumentCaptor;
 
@@ -97,7 +118,7 @@ class BeerControllerTest {
         beer.setBeerName(null);
 
 
-        given(beerService.updateBeerById(any(UUID.class), any(BeerDTO.class))).willReturn(Optional.of(beer));
+        given(beerService.updateBeerById(any(UUID.class), any(BeerDTO.class), any())).willReturn(WriteResult.WRITTEN);
 
         mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
                         .with(jwtRequestPostProcessor)
@@ -132,7 +153,24 @@ class BeerControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.id", is(testBeer.getId().toString())))
-                .andExpect(jsonPath("$.beerName", is(testBeer.getBeerName())));
+                .andExpect(jsonPath("$.beerName", is(testBeer.getBeerName())))
+                .andExpect(header().string(HttpHeaders.ETAG, EntityTags.of(testBeer.getId(), testBeer.getVersion())));
+    }
+
+    @Test
+    void getBeerByIdNotModified() throws Exception {
+
+        BeerDTO testBeer = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent().get(0);
+
+        given(beerService.getBeerVersion(testBeer.getId())).willReturn(Optional.of(testBeer.getVersion()));
+
+        mockMvc.perform(get(BeerController.BEER_PATH_ID, testBeer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/" + EntityTags.of(testBeer.getId(), testBeer.getVersion())))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(beerService, never()).getBeerById(any());
     }
 
     @Test
@@ -142,13 +180,100 @@ class BeerControllerTest {
                 .willReturn(beerServiceImpl.listBeers(null, null, false, 1, 25));
 
         mockMvc.perform(get(BeerController.BEER_PATH)
-                        .with(httpBasic("user1", "password"))
+                        .with(jwtRequestPostProcessor)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.content.size()", is(3)));
     }
 
+    @Test
+    void listBeersByCategory() throws Exception {
+        UUID categoryId = UUID.randomUUID();
+
+        given(beerService.listBeersByCategory(eq(categoryId), any(), any(), any(), any(), any()))
+                .willReturn(beerServiceImpl.listBeers(null, null, false, 1, 25));
+
+        //fields would pick another listing without the category
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("category", categoryId.toString())
+                        .queryParam("fields", "beerName")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(3)));
+
+        verify(beerService, never()).listBeersWithFields(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void listBeersWithFields() throws Exception {
+
+        given(beerService.listBeersWithFields(any(), any(), any(), any(), any()))
+                .willReturn(beerServiceImpl.listBeers(null, null, true, 1, 25));
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("fields", "beerName,price")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(3)))
+                .andExpect(jsonPath("$.content[0].beerName").exists())
+                .andExpect(jsonPath("$.content[0].quantityOnHand").doesNotExist());
+    }
+
+    @Test
+    void listBeersWithUnknownField() throws Exception {
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("fields", "beerName,secretRecipe")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listBeersSlice() throws Exception {
+
+        given(beerService.listBeersSlice(any(), any(), any(), any(), any()))
+                .willReturn(beerServiceImpl.listBeersSlice(null, null, false, 1, 25));
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("slice", "true")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(3)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void listBeersByCursor() throws Exception {
+
+        given(beerService.listBeersAfter(any(), any(), any(), any(), any()))
+                .willReturn(beerServiceImpl.listBeersAfter(null, null, false, null, 2));
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("cursor", "")
+                        .queryParam("pageSize", "2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(2)))
+                .andExpect(jsonPath("$.nextCursor").exists());
+
+        verify(beerService).listBeersAfter(any(), any(), any(), eq(BeerCursor.START), eq(2));
+    }
+
+    @Test
+    void listBeersByCursorInvalid() throws Exception {
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void createNewBeer() throws Exception {
 
@@ -172,7 +297,7 @@ class BeerControllerTest {
     void updateBeer() throws Exception {
         BeerDTO beer = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent().get(0);
 
-        given(beerService.updateBeerById(any(), any())).willReturn(Optional.of(beer));
+        given(beerService.updateBeerById(any(), any(), any())).willReturn(WriteResult.WRITTEN);
 
         mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
                         .with(jwtRequestPostProcessor)
@@ -183,6 +308,91 @@ class BeerControllerTest {
 
     }
 
+    @Test
+    void updateBeerStaleIfMatch() throws Exception {
+        BeerDTO beer = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent().get(0);
+
+        given(beerService.updateBeerById(eq(beer.getId()), any(), eq(List.of(beer.getVersion()))))
+                .willReturn(WriteResult.CONFLICT);
+
+        mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, EntityTags.of(beer.getId(), beer.getVersion()))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(beer)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(beerService).updateBeerById(eq(beer.getId()), any(), eq(List.of(beer.getVersion())));
+    }
+
+    @Test
+    void updateBeerIfMatchVersionTooBigMatchesNothing() throws Exception {
+        BeerDTO beer = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent().get(0);
+
+        given(beerService.updateBeerById(eq(beer.getId()), any(), eq(List.of()))).willReturn(WriteResult.CONFLICT);
+
+        mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, EntityTags.of(beer.getId(), 99999999999L))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(beer)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void bulkPostBeers() throws Exception {
+        List<BeerDTO> beers = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent();
+
+        given(beerBulkService.saveBeers(any())).willReturn(List.of(
+                BeerBulkResultDTO.builder().index(0).status(BeerBulkResultDTO.Status.CREATED).id(UUID.randomUUID()).build(),
+                BeerBulkResultDTO.builder().index(1).status(BeerBulkResultDTO.Status.CREATED).id(UUID.randomUUID()).build(),
+                BeerBulkResultDTO.builder().index(2).status(BeerBulkResultDTO.Status.CREATED).id(UUID.randomUUID()).build()));
+
+        mockMvc.perform(post(BeerController.BEER_BULK_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(beers)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[2].status", is("CREATED")));
+    }
+
+    @Test
+    void exportBeersNegotiatesTheFormat() throws Exception {
+        given(beerExportService.exportBeers(any(), any(), any(), any())).willAnswer(invocation -> {
+            invocation.getArgument(3, java.io.OutputStream.class).write("beer\n".getBytes());
+            return 1L;
+        });
+
+        MvcResult csv = mockMvc.perform(get(BeerController.BEER_EXPORT_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .accept("application/x-ndjson;q=0.5, text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"beers.csv\""))
+                .andExpect(content().string("beer\n"));
+        verify(beerExportService).exportBeers(eq(null), eq(BeerStyle.IPA), eq(BeerExportFormat.CSV), any());
+
+        MvcResult ndjson = mockMvc.perform(get(BeerController.BEER_EXPORT_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .accept(MediaType.ALL))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson;charset=UTF-8"));
+        verify(beerExportService).exportBeers(eq(null), eq(null), eq(BeerExportFormat.NDJSON), any());
+    }
+
     @Test
     void deleteBeer() throws Exception {
         BeerDTO beer = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent().get(0);
@@ -204,7 +414,7 @@ class BeerControllerTest {
         Map<String, Object> beerMap = new HashMap<>();
         beerMap.put("beerName", "New Name");
 
-        given(beerService.patchBeerById(any(), any())).willReturn(Optional.of(beer));
+        given(beerService.patchBeerById(any(), any(), any())).willReturn(WriteResult.WRITTEN);
 
         mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
                         .with(jwtRequestPostProcessor)
@@ -213,7 +423,7 @@ class BeerControllerTest {
                 .content(objectMapper.writeValueAsString(beerMap)))
                 .andExpect(status().isNoContent());
 
-        verify(beerService).patchBeerById(uuidArgumentCaptor.capture(), beerArgumentCaptor.capture());
+        verify(beerService).patchBeerById(uuidArgumentCaptor.capture(), beerArgumentCaptor.capture(), any());
 
         assertThat(beer.getId()).isEqualTo(uuidArgumentCaptor.getValue());
         assertThat(beerMap.get("beerName")).isEqualTo(beerArgumentCaptor.getValue().getBeerName());
@@ -0,0 +1,137 @@
+package guru.springframework.spring6restmvc.controller;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.entities.BeerOrder;
+import guru.springframework.spring6restmvc.entities.BeerOrderLine;
+import guru.springframework.spring6restmvc.entities.BeerOrderShipment;
+import guru.springframework.spring6restmvc.entities.Customer;
+import guru.springframework.spring6restmvc.repositories.BeerOrderRepository;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.CustomerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query budget guard for the order reads: counts the JDBC statements a request runs, with Hibernate statistics,
+ * and fails when lazy loading creeps back in as one select per order, line, beer or shipment.
+ */
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"})
+class BeerOrderControllerIT {
+
+    //ids page + count + one select for the orders with their lines and shipments
+    static final long LIST_QUERY_BUDGET = 3;
+    static final long GET_QUERY_BUDGET = 1;
+
+    @Autowired
+    WebApplicationContext wac;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    MockMvc mockMvc;
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        if (beerOrderRepository.count() < 10) {
+            transactionTemplate.executeWithoutResult(status -> saveOrders(10));
+        }
+    }
+
+    //Different customers and beers on every order, so nothing is served from the persistence context
+    void saveOrders(int count) {
+        List<Customer> customers = customerRepository.findAll();
+        List<Beer> beers = beerRepository.findAll(PageRequest.of(0, count * 3)).getContent();
+
+        for (int i = 0; i < count; i++) {
+            BeerOrder beerOrder = BeerOrder.builder()
+                    .customerRef("Query budget " + i)
+                    .customer(customers.get(i % customers.size()))
+                    .beerOrderShipment(BeerOrderShipment.builder().trackingNumber("TRACK-" + i).build())
+                    .build();
+
+            Set<BeerOrderLine> lines = new LinkedHashSet<>();
+            for (int j = 0; j < 3; j++) {
+                lines.add(BeerOrderLine.builder()
+                        .beerOrder(beerOrder)
+                        .beer(beers.get(i * 3 + j))
+                        .orderQuantity(1)
+                        .quantityAllocated(1)
+                        .build());
+            }
+            beerOrder.setBeerOrderLines(lines);
+            beerOrderRepository.save(beerOrder);
+        }
+    }
+
+
+    @Test
+    void testListBeerOrdersQueryBudget() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("pageSize", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(10)))
+                .andExpect(jsonPath("$.content[0].beerOrderLines[0].beerId").exists());
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(LIST_QUERY_BUDGET);
+    }
+
+    @Test
+    void testGetBeerOrderByIdQueryBudget() throws Exception {
+        BeerOrder beerOrder = beerOrderRepository.findAll().stream()
+                .filter(order -> order.getCustomerRef() != null && order.getCustomerRef().startsWith("Query budget"))
+                .findFirst().orElseThrow();
+        statistics.clear();
+
+        mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH_ID, beerOrder.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.beerOrderLines", hasSize(3)))
+                .andExpect(jsonPath("$.trackingNumber", startsWith("TRACK-")));
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(GET_QUERY_BUDGET);
+    }
+}
@@ -0,0 +1,107 @@
+package guru.springframework.spring6restmvc.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring6restmvc.config.SpringSecurityConfig;
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderLineDTO;
+import guru.springframework.spring6restmvc.services.BeerOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static guru.springframework.spring6restmvc.controller.BeerControllerTest.jwtRequestPostProcessor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.core.Is.is;
+
+@WebMvcTest(BeerOrderController.class)
+@Import(SpringSecurityConfig.class)
+class BeerOrderControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @MockBean
+    BeerOrderService beerOrderService;
+
+    BeerOrderCreateDTO createOrder(int orderQuantity) {
+        return BeerOrderCreateDTO.builder()
+                .customerId(UUID.randomUUID())
+                .beerOrderLines(List.of(BeerOrderLineDTO.builder()
+                        .beerId(UUID.randomUUID())
+                        .orderQuantity(orderQuantity)
+                        .build()))
+                .build();
+    }
+
+    @Test
+    void testPlaceOrder() throws Exception {
+        BeerOrderCreateDTO order = createOrder(5);
+        UUID orderId = UUID.randomUUID();
+
+        given(beerOrderService.placeOrder(any())).willReturn(Optional.of(BeerOrderDTO.builder()
+                .id(orderId)
+                .customerId(order.getCustomerId())
+                .beerOrderLines(List.of(BeerOrderLineDTO.builder()
+                        .beerId(order.getBeerOrderLines().get(0).getBeerId())
+                        .orderQuantity(5)
+                        .quantityAllocated(5)
+                        .build()))
+                .build()));
+
+        mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", BeerOrderController.BEER_ORDER_PATH + "/" + orderId))
+                .andExpect(jsonPath("$.beerOrderLines[0].quantityAllocated", is(5)));
+    }
+
+    @Test
+    void testPlaceOrderUnknownBeer() throws Exception {
+        given(beerOrderService.placeOrder(any())).willReturn(Optional.empty());
+
+        mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createOrder(5))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void testPlaceOrderZeroQuantity() throws Exception {
+        mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createOrder(0))))
+                .andExpect(status().isBadRequest());
+
+        verify(beerOrderService, never()).placeOrder(any());
+    }
+
+    @Test
+    void testGetBeerOrderByIdNotFound() throws Exception {
+        given(beerOrderService.getBeerOrderById(any())).willReturn(Optional.empty());
+
+        mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH_ID, UUID.randomUUID())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNotFound());
+    }
+}
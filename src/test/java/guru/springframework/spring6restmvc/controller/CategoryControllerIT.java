@@ -0,0 +1,132 @@
+package guru.springframework.spring6restmvc.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.entities.Category;
+import guru.springframework.spring6restmvc.model.CategoryDTO;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.CategoryRepository;
+import guru.springframework.spring6restmvc.services.CategoryService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+class CategoryControllerIT {
+
+    @Autowired
+    WebApplicationContext wac;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    CategoryService categoryService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+    }
+
+    UUID createCategory(String description) throws Exception {
+        String location = mockMvc.perform(post(CategoryController.CATEGORY_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("description", description))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        return UUID.fromString(location.substring(location.lastIndexOf('/') + 1));
+    }
+
+    @Test
+    void testListBeersByCategory() throws Exception {
+        UUID categoryId = createCategory("Seasonal");
+        Beer beer = beerRepository.findAll().get(0);
+
+        mockMvc.perform(put(CategoryController.CATEGORY_BEER_PATH, categoryId, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("category", categoryId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(1)))
+                .andExpect(jsonPath("$.content[0].id", is(beer.getId().toString())));
+
+        mockMvc.perform(get(CategoryController.BEER_CATEGORY_PATH, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].description", is("Seasonal")));
+
+        //Deleting the category unlinks its beers, and the cached categories of the beer go with it
+        mockMvc.perform(delete(CategoryController.CATEGORY_PATH_ID, categoryId)
+                        .with(BeerControllerTest.jwtRequestPostProcessor))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(CategoryController.BEER_CATEGORY_PATH, beer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(0)));
+    }
+
+    @Test
+    void testCategoriesFromSecondLevelCache() throws Exception {
+        UUID categoryId = createCategory("Cached");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        try {
+            categoryService.getCategoryById(categoryId);
+            categoryService.getCategoryById(categoryId);
+            categoryService.listCategories();
+            categoryService.listCategories();
+
+            assertThat(statistics.getDomainDataRegionStatistics(Category.CACHE_REGION).getHitCount()).isPositive();
+            assertThat(statistics.getQueryRegionStatistics(CategoryRepository.CATALOG_CACHE_REGION).getHitCount())
+                    .isEqualTo(1);
+            //Only the first catalog query went to the database
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            //A write invalidates the cached catalog
+            categoryService.updateCategoryById(categoryId, CategoryDTO.builder().description("Cached and renamed").build());
+            assertThat(categoryService.listCategories())
+                    .anyMatch(category -> category.getDescription().equals("Cached and renamed"));
+        } finally {
+            statistics.setStatisticsEnabled(false);
+            categoryService.deleteCategoryById(categoryId);
+        }
+    }
+}
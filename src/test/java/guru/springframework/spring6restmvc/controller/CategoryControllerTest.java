@@ -0,0 +1,98 @@
+package guru.springframework.spring6restmvc.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring6restmvc.config.SpringSecurityConfig;
+import guru.springframework.spring6restmvc.model.CategoryDTO;
+import guru.springframework.spring6restmvc.services.CategoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static guru.springframework.spring6restmvc.controller.BeerControllerTest.jwtRequestPostProcessor;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(CategoryController.class)
+@Import(SpringSecurityConfig.class)
+class CategoryControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @MockBean
+    CategoryService categoryService;
+
+    @Test
+    void testListCategories() throws Exception {
+        given(categoryService.listCategories()).willReturn(List.of(
+                CategoryDTO.builder().id(UUID.randomUUID()).description("Ales").build(),
+                CategoryDTO.builder().id(UUID.randomUUID()).description("Lagers").build()));
+
+        mockMvc.perform(get(CategoryController.CATEGORY_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[0].description", is("Ales")));
+    }
+
+    @Test
+    void testCreateCategory() throws Exception {
+        UUID categoryId = UUID.randomUUID();
+        given(categoryService.saveNewCategory(any())).willReturn(
+                CategoryDTO.builder().id(categoryId).description("Stouts").build());
+
+        mockMvc.perform(post(CategoryController.CATEGORY_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("description", "Stouts"))))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", CategoryController.CATEGORY_PATH + "/" + categoryId));
+    }
+
+    @Test
+    void testCreateCategoryBlankDescription() throws Exception {
+        mockMvc.perform(post(CategoryController.CATEGORY_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("description", ""))))
+                .andExpect(status().isBadRequest());
+
+        verify(categoryService, never()).saveNewCategory(any());
+    }
+
+    @Test
+    void testGetCategoryNotFound() throws Exception {
+        given(categoryService.getCategoryById(any())).willReturn(Optional.empty());
+
+        mockMvc.perform(get(CategoryController.CATEGORY_PATH_ID, UUID.randomUUID())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAddBeerNotFound() throws Exception {
+        given(categoryService.addBeer(any(), any())).willReturn(false);
+
+        mockMvc.perform(put(CategoryController.CATEGORY_BEER_PATH, UUID.randomUUID(), UUID.randomUUID())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNotFound());
+    }
+}
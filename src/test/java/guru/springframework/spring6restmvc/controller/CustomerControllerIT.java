@@ -9,9 +9,11 @@ import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
 import java.util.List;
@@ -60,12 +62,20 @@ class CustomerControllerIT {
 
     }
 
+    @Test
+    void testListCustomersSlice() {
+        Slice<CustomerDTO> slice = customerController.listCustomers(1, 2, true);
+
+        assertThat(slice.getContent().size()).isEqualTo(2);
+        assertThat(slice.hasNext()).isTrue();
+    }
+
     //unhappy path
     @Test
     void testCustomByIdNotFound() {
 
         assertThrows(NotFoundException.class, () -> {
-            customerController.getCustomerById(UUID.randomUUID());
+            customerController.getCustomerById(UUID.randomUUID(), null);
         });
     }
     //happy path
@@ -74,7 +84,7 @@ class CustomerControllerIT {
 
         Customer customer = customerRepository.findAll().get(0);
 
-        CustomerDTO customerDTO = customerController.getCustomerById(customer.getId());
+        CustomerDTO customerDTO = customerController.getCustomerById(customer.getId(), null).getBody();
 
         assertThat(customerDTO).isNotNull();
     }
@@ -105,7 +115,7 @@ class CustomerControllerIT {
     void testUpdateCustomByIdNotFound() {
 
         assertThrows(NotFoundException.class, () -> {
-            customerController.updateCustomerById(UUID.randomUUID(), CustomerDTO.builder().build());
+            customerController.updateCustomerById(UUID.randomUUID(), CustomerDTO.builder().build(), null);
         });
     }
 
@@ -123,7 +133,7 @@ class CustomerControllerIT {
 
         customerDTO.setName(name);
 
-        ResponseEntity responseEntity = customerController.updateCustomerById(customer.getId(), customerDTO);
+        ResponseEntity responseEntity = customerController.updateCustomerById(customer.getId(), customerDTO, null);
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.valueOf(204));
 
@@ -131,6 +141,46 @@ class CustomerControllerIT {
         assertThat(updatedCustomer.getName()).isEqualTo(name);
     }
 
+    //A PUT is a full replace, a missing name is written as null
+    @Transactional
+    @Rollback
+    @Test
+    void testUpdateCustomerWithoutName() {
+
+        Customer customer = customerRepository.findAll().get(0);
+
+        ResponseEntity responseEntity = customerController.updateCustomerById(customer.getId(),
+                CustomerDTO.builder().build(), null);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.valueOf(204));
+
+        Customer updatedCustomer = customerRepository.findById(customer.getId()).get();
+        assertThat(updatedCustomer.getName()).isNull();
+        assertThat(updatedCustomer.getVersion()).isEqualTo(customer.getVersion() + 1);
+        assertThat(updatedCustomer.getUpdateDate()).isNotNull();
+        if (customer.getUpdateDate() != null) {
+            assertThat(updatedCustomer.getUpdateDate()).isAfterOrEqualTo(customer.getUpdateDate());
+        }
+    }
+
+    //unhappy path
+    @Transactional
+    @Rollback
+    @Test
+    void testUpdateCustomerStaleVersion() {
+
+        Customer customer = customerRepository.findAll().get(0);
+        CustomerDTO customerDTO = customerMapper.customerToCustomerDto(customer);
+        customerDTO.setVersion(customer.getVersion() - 1);
+        customerDTO.setName("Name");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            customerController.updateCustomerById(customer.getId(), customerDTO, null);
+        });
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(customerRepository.findById(customer.getId()).get().getName()).isEqualTo(customer.getName());
+    }
+
     //unhappy path
     @Test
     void testDeleteByIdNotFound() {
@@ -161,7 +211,7 @@ class CustomerControllerIT {
     void testPatchByIdNotFound() {
 
         assertThrows(NotFoundException.class, () -> {
-            customerController.patchCustomerById(UUID.randomUUID(), CustomerDTO.builder().build());
+            customerController.patchCustomerById(UUID.randomUUID(), CustomerDTO.builder().build(), null);
         });
     }
 
@@ -179,7 +229,7 @@ class CustomerControllerIT {
 
         customerDTO.setName(name);
 
-        ResponseEntity responseEntity = customerController.patchCustomerById(customer.getId(), customerDTO);
+        ResponseEntity responseEntity = customerController.patchCustomerById(customer.getId(), customerDTO, null);
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.valueOf(204));
 
@@ -5,6 +5,7 @@ import guru.springframework.spring6restmvc.config.SpringSecurityConfig;
 import guru.springframework.spring6restmvc.model.CustomerDTO;
 import guru.springframework.spring6restmvc.services.CustomerService;
 import guru.springframework.spring6restmvc.services.CustomerServiceImpl;
+import guru.springframework.spring6restmvc.services.WriteResult;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -15,6 +16,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 import java.util.*;
@@ -71,6 +73,53 @@ class CustomerControllerTest {
                 .andExpect(jsonPath("$.length()", is(3)));
     }
 
+    @Test
+    void testListCustomersPage() throws Exception {
+
+        given(customerService.listCustomers(any(), any())).willReturn(customerServiceImpl.listCustomers(1, 25));
+
+        mockMvc.perform(get(CustomerController.CUSTOMER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("pageSize", "25")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(3)))
+                .andExpect(jsonPath("$.totalElements", is(3)));
+    }
+
+    @Test
+    void testListCustomersSlice() throws Exception {
+
+        given(customerService.listCustomersSlice(any(), any())).willReturn(customerServiceImpl.listCustomersSlice(1, 25));
+
+        mockMvc.perform(get(CustomerController.CUSTOMER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("pageSize", "25")
+                        .queryParam("slice", "true")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(3)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(customerService, never()).listCustomers(any(), any());
+    }
+
+    @Test
+    void testListCustomersSliceWithoutPageSize() throws Exception {
+
+        given(customerService.listCustomersSlice(any(), any())).willReturn(customerServiceImpl.listCustomersSlice(1, 25));
+
+        mockMvc.perform(get(CustomerController.CUSTOMER_PATH)
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .queryParam("slice", "true")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(3)));
+
+        verify(customerService).listCustomersSlice(null, null);
+        verify(customerService, never()).getAllCustomers();
+    }
+
     @Test
     void testGetCustomerByIdNotFound() throws Exception {
         given(customerService.getCustomerById(any(UUID.class))).willReturn(Optional.empty());
@@ -92,7 +141,39 @@ class CustomerControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.id", is(customer.getId().toString())))
-                .andExpect(jsonPath("$.name", is(customer.getName())));
+                .andExpect(jsonPath("$.name", is(customer.getName())))
+                .andExpect(header().string(HttpHeaders.ETAG, EntityTags.of(customer.getId(), customer.getVersion())));
+    }
+
+    @Test
+    void testGetCustomerByIdNotModified() throws Exception {
+        CustomerDTO customer = customerServiceImpl.getAllCustomers().get(0);
+
+        given(customerService.getCustomerVersion(customer.getId())).willReturn(Optional.of(customer.getVersion()));
+
+        mockMvc.perform(get(CustomerController.CUSTOMER_PATH_ID, customer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_NONE_MATCH, EntityTags.of(customer.getId(), customer.getVersion())))
+                .andExpect(status().isNotModified());
+
+        verify(customerService, never()).getCustomerById(any());
+    }
+
+    @Test
+    void testPatchCustomerStaleIfMatch() throws Exception {
+        CustomerDTO customer = customerServiceImpl.getAllCustomers().get(0);
+
+        given(customerService.patchCustomerById(eq(customer.getId()), any(), eq(List.of(customer.getVersion()))))
+                .willReturn(WriteResult.CONFLICT);
+
+        mockMvc.perform(patch(CustomerController.CUSTOMER_PATH_ID, customer.getId())
+                        .with(BeerControllerTest.jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, EntityTags.of(customer.getId(), customer.getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("name", "new name"))))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(customerService).patchCustomerById(eq(customer.getId()), any(), eq(List.of(customer.getVersion())));
     }
 
     @Test
@@ -119,7 +200,7 @@ class CustomerControllerTest {
         map.put("name", "new Customer name");
 
         //add method due to changing signature of update method to optional
-        given(customerService.updateCustomerById(any(), any())).willReturn(Optional.of(customer));
+        given(customerService.updateCustomerById(any(), any(), any())).willReturn(WriteResult.WRITTEN);
 
         mockMvc.perform(put(CustomerController.CUSTOMER_PATH_ID, customer.getId())
                         .with(BeerControllerTest.jwtRequestPostProcessor)
@@ -128,7 +209,7 @@ class CustomerControllerTest {
                 .content(objectMapper.writeValueAsString(map)))
                 .andExpect(status().isNoContent());
 
-        verify(customerService).updateCustomerById(uuidArgumentCaptor.capture(), customerArgumentCaptor.capture());
+        verify(customerService).updateCustomerById(uuidArgumentCaptor.capture(), customerArgumentCaptor.capture(), any());
 
         assertThat(uuidArgumentCaptor.getValue()).isEqualTo(customer.getId());
         assertThat(customerArgumentCaptor.getValue().getName()).isEqualTo(map.get("name"));
@@ -158,7 +239,7 @@ class CustomerControllerTest {
         Map<Object, Object > map = new HashMap<>();
         map.put("name", "new Customer name");
 
-        given(customerService.patchCustomerById(any(), any())).willReturn(Optional.of(customer));
+        given(customerService.patchCustomerById(any(), any(), any())).willReturn(WriteResult.WRITTEN);
         mockMvc.perform(patch(CustomerController.CUSTOMER_PATH_ID, customer.getId())
                         .with(BeerControllerTest.jwtRequestPostProcessor)
                         .accept(MediaType.APPLICATION_JSON)
@@ -166,7 +247,7 @@ class CustomerControllerTest {
                         .content(objectMapper.writeValueAsString(map)))
                 .andExpect(status().isNoContent());
 
-        verify(customerService).patchCustomerById(uuidArgumentCaptor.capture(), customerArgumentCaptor.capture());
+        verify(customerService).patchCustomerById(uuidArgumentCaptor.capture(), customerArgumentCaptor.capture(), any());
 
         assertThat(uuidArgumentCaptor.getValue()).isEqualTo(customer.getId());
         assertThat(customerArgumentCaptor.getValue().getName()).isEqualTo(map.get("name"));
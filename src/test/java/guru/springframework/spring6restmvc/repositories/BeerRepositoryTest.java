@@ -2,8 +2,12 @@ package guru.springframework.spring6restmvc.repositories;
 
 import guru.springframework.spring6restmvc.bootstrap.BootStrapData;
 import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerField;
 import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.services.BeerCsvImportServiceImpl;
 import guru.springframework.spring6restmvc.services.BeerCsvServiceImpl;
+import guru.springframework.spring6restmvc.services.CatalogGeneration;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
@@ -11,9 +15,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
 
 import java.math.BigDecimal;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
 
@@ -27,7 +35,7 @@ import static org.hamcrest.core.Is.is;
 
 
 @DataJpaTest
-@Import({BootStrapData.class, BeerCsvServiceImpl.class})
+@Import({BootStrapData.class, BeerCsvServiceImpl.class, BeerCsvImportServiceImpl.class, CatalogGeneration.class})
 class BeerRepositoryTest {
 
     @Autowired
@@ -57,6 +65,55 @@ class BeerRepositoryTest {
         assertThat(list.getContent().size()).isEqualTo(336);
     }
 
+    @Test
+    void testGetBeerDtosByNameAndStyle() {
+
+        Page<BeerDTO> page = beerRepository.findAllDtosByBeerNameLikeAndBeerStyle("%ipa%", BeerStyle.IPA,
+                PageRequest.of(0, 25));
+
+        assertThat(page.getTotalElements()).isEqualTo(310);
+        assertThat(page.getContent().get(0).getBeerName()).isNotNull();
+        assertThat(page.getContent().get(0).getVersion()).isNotNull();
+    }
+
+    @Test
+    void testGetBeersProjected() {
+
+        Page<BeerDTO> page = beerRepository.findAllProjected(EnumSet.of(BeerField.BEER_NAME, BeerField.PRICE),
+                BeerStyle.PALE_ALE, PageRequest.of(0, 10, Sort.by("beerName")));
+
+        assertThat(page.getTotalElements()).isEqualTo(14);
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.getContent().get(0).getId()).isNotNull();
+        assertThat(page.getContent().get(0).getBeerName()).isNotNull();
+        assertThat(page.getContent().get(0).getQuantityOnHand()).isNull();
+        assertThat(page.getContent().get(0).getBeerStyle()).isNull();
+    }
+
+    @Test
+    void testGetBeerSliceByStyle() {
+
+        Slice<BeerDTO> slice = beerRepository.findSliceDtosByBeerStyle(BeerStyle.PALE_ALE, PageRequest.of(1, 10));
+
+        assertThat(slice.getContent().size()).isEqualTo(4);
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    @Test
+    void testGetBeerListAfterCursor() {
+
+        Slice<BeerDTO> first = beerRepository.findAllByBeerStyleAfter(BeerStyle.PALE_ALE, "", new UUID(0L, 0L),
+                PageRequest.ofSize(10));
+        BeerDTO last = first.getContent().get(9);
+
+        Slice<BeerDTO> second = beerRepository.findAllByBeerStyleAfter(BeerStyle.PALE_ALE, last.getBeerName(), last.getId(),
+                PageRequest.ofSize(10));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent().size()).isEqualTo(4);
+        assertThat(second.hasNext()).isFalse();
+    }
+
     @Test
     void testSaveBeerNameLong() {
 
@@ -0,0 +1,77 @@
+package guru.springframework.spring6restmvc.repositories;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerCursor;
+import guru.springframework.spring6restmvc.model.BeerCursorPageDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderLineDTO;
+import guru.springframework.spring6restmvc.services.BeerOrderService;
+import guru.springframework.spring6restmvc.services.BeerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The whole data path with BINARY(16) ids (the binaryuuid profile's id storage) on H2: bootstrap, lookups,
+ * keyset paging over the id and order placement through the foreign keys.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.type.preferred_uuid_jdbc_type=BINARY")
+@DirtiesContext
+class BinaryUuidStorageIT {
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testIdsAreStoredAsBinary() {
+        String type = jdbcTemplate.queryForObject("select data_type from information_schema.columns " +
+                "where table_name = 'BEER' and column_name = 'ID'", String.class);
+
+        assertThat(type).isEqualTo("BINARY");
+    }
+
+    @Test
+    void testLookupAndKeysetPaging() {
+        Beer beer = beerRepository.findAll().get(0);
+        assertThat(beerRepository.findById(beer.getId())).isPresent();
+
+        BeerCursorPageDTO first = beerService.listBeersAfter(null, null, true, null, 50);
+        BeerCursorPageDTO second = beerService.listBeersAfter(null, null, true,
+                BeerCursor.decode(first.getNextCursor()), 50);
+
+        assertThat(second.getContent()).hasSize(50);
+        assertThat(second.getContent()).doesNotContainAnyElementsOf(first.getContent());
+    }
+
+    @Test
+    void testPlaceOrder() {
+        Beer beer = beerRepository.findAll().get(0);
+
+        BeerOrderDTO order = beerOrderService.placeOrder(BeerOrderCreateDTO.builder()
+                .customerId(customerRepository.findAll().get(0).getId())
+                .beerOrderLines(List.of(BeerOrderLineDTO.builder().beerId(beer.getId()).orderQuantity(1).build()))
+                .build()).orElseThrow();
+
+        assertThat(beerOrderService.getBeerOrderById(order.getId()).orElseThrow()
+                .getBeerOrderLines().get(0).getBeerId()).isEqualTo(beer.getId());
+    }
+}
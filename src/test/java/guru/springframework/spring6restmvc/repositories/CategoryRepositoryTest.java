@@ -39,4 +39,21 @@ class CategoryRepositoryTest {
 
         System.out.println(savedBeer.getCategories());
     }
-}
\ No newline at end of file
+
+    @Transactional
+    @Test
+    void testDeleteRowByIdRemovesCategoryLinks() {
+
+        Category savedCat = categoryRepository.save(Category.builder()
+                        .description("Lagers")
+                        .build());
+
+        testBeer.addCategory(savedCat);
+        beerRepository.saveAndFlush(testBeer);
+
+        assertEquals(1, beerRepository.deleteRowById(testBeer.getId()));
+
+        assertTrue(beerRepository.findById(testBeer.getId()).isEmpty());
+        assertTrue(categoryRepository.findById(savedCat.getId()).get().getBeers().isEmpty());
+    }
+}
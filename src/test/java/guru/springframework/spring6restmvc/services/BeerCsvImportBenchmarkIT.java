@@ -0,0 +1,84 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerCSVRecord;
+import guru.springframework.spring6restmvc.model.BeerCsvImportResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.ResourceUtils;
+
+import java.io.BufferedWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares convertCSV, the streaming import and the parallel import on csvdata/beers.csv scaled up synthetically
+ * (-Dbeer.benchmark.scale=N copies, 20 by default). Run with mvn test -Dtest=BeerCsvImportBenchmarkIT, add
+ * -Dspring.jpa.properties.hibernate.type.preferred_uuid_jdbc_type=BINARY to compare the id storage modes
+ */
+@SpringBootTest
+@DirtiesContext //leaves a lot of beers behind
+class BeerCsvImportBenchmarkIT {
+
+    @Autowired
+    BeerCsvService beerCsvService;
+
+    @Autowired
+    BeerCsvImportService beerCsvImportService;
+
+    Path scaledCsv;
+    int scale = Integer.getInteger("beer.benchmark.scale", 20);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<String> lines = Files.readAllLines(ResourceUtils.getFile("classpath:csvdata/beers.csv").toPath());
+        scaledCsv = Files.createTempFile("beers-scaled", ".csv");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(scaledCsv, StandardCharsets.UTF_8)) {
+            writer.write(lines.get(0));
+            writer.newLine();
+            for (int copy = 0; copy < scale; copy++) {
+                for (String line : lines.subList(1, lines.size())) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(scaledCsv);
+    }
+
+    @Test
+    void compareImports() throws Exception {
+        long start = System.nanoTime();
+        List<BeerCSVRecord> records = beerCsvService.convertCSV(scaledCsv.toFile());
+        long convertMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("convertCSV (parse only): " + records.size() + " rows in " + convertMillis + " ms, "
+                + records.size() * 1000L / Math.max(convertMillis, 1) + " rows/sec");
+
+        BeerCsvImportResultDTO streamed;
+        try (Reader reader = Files.newBufferedReader(scaledCsv)) {
+            streamed = beerCsvImportService.importCsv(reader);
+        }
+        System.out.println("streaming import: " + streamed);
+
+        BeerCsvImportResultDTO parallel = beerCsvImportService.importCsvParallel(scaledCsv);
+        System.out.println("parallel import: " + parallel);
+
+        assertThat(streamed.getRowsRead()).isEqualTo(records.size());
+        assertThat(parallel.getRowsRead()).isEqualTo(records.size());
+        assertThat(parallel.getRowsImported()).isEqualTo(streamed.getRowsImported());
+    }
+}
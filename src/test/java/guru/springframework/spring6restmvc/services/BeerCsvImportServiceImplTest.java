@@ -0,0 +1,145 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerCsvImportResultDTO;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.support.DomainDataRegionTemplate;
+import org.hibernate.cache.jcache.internal.JCacheAccessImpl;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.cache.Cache;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({BeerCsvServiceImpl.class, BeerCsvImportServiceImpl.class, CatalogGeneration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) //the import commits its own chunks
+class BeerCsvImportServiceImplTest {
+
+    @Autowired
+    BeerCsvImportService beerCsvImportService;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BeerCsvService beerCsvService;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CatalogGeneration catalogGeneration;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll(imported());
+    }
+
+    String csv = "\"row\",\"count.x\",\"beer\",\"style\"\n" +
+            "\"80001\",5,\"Region Test Stout\",\"American Stout\"\n" +
+            "\"80002\",6,\"Region Test IPA\",\"American IPA\"\n";
+
+    @Test
+    void importLeavesTheBeerCategoriesRegionAlone() {
+        long entries = regionEntries(Beer.CATEGORIES_CACHE_REGION); //other tests of the context may have cached some
+
+        BeerCsvImportResultDTO result = beerCsvImportService.importCsv(new StringReader(csv));
+
+        assertThat(result.getRowsImported()).isEqualTo(2);
+        assertThat(regionEntries(Beer.CATEGORIES_CACHE_REGION)).isEqualTo(entries);
+    }
+
+    @Test
+    void parallelImportLeavesTheBeerCategoriesRegionAlone(@TempDir Path dir) throws IOException {
+        Path csvFile = Files.writeString(dir.resolve("beers.csv"), csv);
+
+        long entries = regionEntries(Beer.CATEGORIES_CACHE_REGION); //other tests of the context may have cached some
+
+        BeerCsvImportResultDTO result = beerCsvImportService.importCsvParallel(csvFile);
+
+        assertThat(result.getRowsImported()).isEqualTo(2);
+        assertThat(regionEntries(Beer.CATEGORIES_CACHE_REGION)).isEqualTo(entries);
+    }
+
+    @Test
+    void shutdownStopsARunningImportWithoutWritingItsPartialChunk() throws Exception {
+        BeerCsvImportServiceImpl importService = new BeerCsvImportServiceImpl(beerCsvService, entityManager,
+                transactionManager, catalogGeneration, 1000, 100, 1, 1);
+        CountDownLatch drained = new CountDownLatch(1);
+
+        //Hands out the csv, then blocks like a slow upload
+        Reader upload = new Reader() {
+            final Reader content = new StringReader(csv);
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = content.read(buffer, offset, length);
+                if (read != -1) {
+                    return read;
+                }
+                drained.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        CompletableFuture<BeerCsvImportResultDTO> result = CompletableFuture.supplyAsync(() -> importService.importCsv(upload));
+        assertThat(drained.await(10, TimeUnit.SECONDS)).isTrue();
+
+        importService.destroy();
+
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(imported()).isEmpty();
+    }
+
+    List<Beer> imported() {
+        return beerRepository.findAllByBeerNameIsLikeIgnoreCase("Region Test%", Pageable.unpaged()).getContent();
+    }
+
+    long regionEntries(String regionName) {
+        DomainDataRegionTemplate region = (DomainDataRegionTemplate) entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class).getCache().getRegion(regionName);
+        Cache<Object, Object> cache = ((JCacheAccessImpl) region.getCacheStorageAccess()).getUnderlyingCache();
+        return StreamSupport.stream(cache.spliterator(), false).count();
+    }
+}
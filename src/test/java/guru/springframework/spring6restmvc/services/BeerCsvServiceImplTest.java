@@ -6,6 +6,7 @@ import org.springframework.util.ResourceUtils;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.StringReader;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,4 +36,19 @@ class BeerCsvServiceImplTest {
 
         assertThat(beerCSVRecords.size()).isGreaterThan(0);
     }
+
+    @Test
+    void iterateCSVSkipsMalformedLines() {
+        String csv = "\"row\",\"beer\",\"style\",\"count.x\"\n" +
+                "\"1\",\"Pub Beer\",\"American Pale Lager\",1\n" +
+                "\"not a number\",\"Broken\",\"American IPA\",2\n" +
+                "\"3\",\"Devil's Cup\",\"American IPA\",3\n";
+
+        BeerCsvService.CsvRecords records = beerCsvService.iterateCSV(new StringReader(csv));
+
+        assertThat(records.next().getBeer()).isEqualTo("Pub Beer");
+        assertThat(records.next().getBeer()).isEqualTo("Devil's Cup");
+        assertThat(records.hasNext()).isFalse();
+        assertThat(records.malformedLines()).isEqualTo(1);
+    }
 }
\ No newline at end of file
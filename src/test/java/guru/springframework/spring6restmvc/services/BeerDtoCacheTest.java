@@ -0,0 +1,78 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.config.CacheConfig;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerDtoCacheTest {
+
+    BeerDtoCache beerDtoCache;
+
+    UUID beerId = UUID.randomUUID();
+
+    AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        beerDtoCache = new BeerDtoCache(new CaffeineCacheManager(CacheConfig.BEER_CACHE));
+    }
+
+    Optional<BeerDTO> load(UUID id, int version) {
+        loads.incrementAndGet();
+        return Optional.of(BeerDTO.builder().id(id).version(version).beerName("Version " + version).build());
+    }
+
+    @Test
+    void testReadThrough() {
+        beerDtoCache.get(beerId, id -> load(id, 1));
+        Optional<BeerDTO> cached = beerDtoCache.get(beerId, id -> load(id, 1));
+
+        assertThat(cached.get().getVersion()).isEqualTo(1);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testMissIsNotCached() {
+        assertThat(beerDtoCache.get(beerId, id -> Optional.empty())).isEmpty();
+        assertThat(beerDtoCache.get(beerId, id -> load(id, 1))).isPresent();
+    }
+
+    @Test
+    void testPutKeepsNewerVersion() {
+        beerDtoCache.get(beerId, id -> load(id, 3));
+
+        beerDtoCache.put(load(beerId, 2).get());
+        assertThat(beerDtoCache.get(beerId, id -> load(id, 0)).get().getVersion()).isEqualTo(3);
+
+        beerDtoCache.put(load(beerId, 4).get());
+        assertThat(beerDtoCache.get(beerId, id -> load(id, 0)).get().getVersion()).isEqualTo(4);
+    }
+
+    @Test
+    void testEvict() {
+        beerDtoCache.get(beerId, id -> load(id, 1));
+        beerDtoCache.evict(beerId);
+        beerDtoCache.get(beerId, id -> load(id, 1));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testCallersGetCopies() {
+        beerDtoCache.get(beerId, id -> load(id, 1)).get().setBeerName("Changed by a caller");
+        BeerDTO put = load(beerId, 2).get();
+        beerDtoCache.put(put);
+        put.setBeerName("Changed after the put");
+
+        assertThat(beerDtoCache.get(beerId, id -> load(id, 1)).get().getBeerName()).isEqualTo("Version 2");
+        assertThat(beerDtoCache.getIfPresent(beerId).get()).isNotSameAs(beerDtoCache.getIfPresent(beerId).get());
+    }
+}
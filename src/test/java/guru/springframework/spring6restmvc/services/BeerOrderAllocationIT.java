@@ -0,0 +1,92 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderLineDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.CustomerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test for the order allocation: many threads ordering the same beer at once. The stock must end at
+ * exactly zero with exactly as many allocated units as there were in stock, and no order may fail.
+ * Tune with -Dbeer.order.threads and -Dbeer.order.orders
+ */
+@Slf4j
+@SpringBootTest
+@DirtiesContext //leaves orders and a sold out beer behind
+class BeerOrderAllocationIT {
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    int threads = Integer.getInteger("beer.order.threads", 32);
+    int orders = Integer.getInteger("beer.order.orders", 2000);
+
+    @Test
+    void testConcurrentOrdersForTheSameBeer() throws Exception {
+        int stock = orders / 4;
+        Beer hotBeer = beerRepository.save(Beer.builder()
+                .beerName("Hot Seller Lager")
+                .beerStyle(BeerStyle.LAGER)
+                .upc("hot-seller")
+                .price(BigDecimal.TEN)
+                .quantityOnHand(stock)
+                .build());
+        UUID customerId = customerRepository.findAll().get(0).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BeerOrderDTO>> results = new ArrayList<>();
+
+        for (int i = 0; i < orders; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return beerOrderService.placeOrder(BeerOrderCreateDTO.builder()
+                        .customerId(customerId)
+                        .customerRef("load test")
+                        .beerOrderLines(List.of(BeerOrderLineDTO.builder()
+                                .beerId(hotBeer.getId())
+                                .orderQuantity(1)
+                                .build()))
+                        .build()).orElseThrow();
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+
+        int allocated = 0;
+        for (Future<BeerOrderDTO> result : results) {
+            allocated += result.get(2, TimeUnit.MINUTES).getBeerOrderLines().get(0).getQuantityAllocated();
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        executor.shutdown();
+
+        log.info(orders + " orders on " + threads + " threads in " + elapsedMillis + " ms, "
+                + (orders * 1000L / elapsedMillis) + " orders/s");
+
+        assertThat(allocated).isEqualTo(stock);
+        assertThat(beerRepository.findById(hotBeer.getId()).orElseThrow().getQuantityOnHand()).isZero();
+    }
+}
@@ -0,0 +1,47 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerCSVRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ResourceUtils;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvPartitionsTest {
+
+    BeerCsvService beerCsvService = new BeerCsvServiceImpl();
+
+    @Test
+    void partitionsCoverEveryRowOnce() throws Exception {
+        List<BeerCSVRecord> expected = beerCsvService.convertCSV(ResourceUtils.getFile("classpath:csvdata/beers.csv"));
+
+        try (FileChannel channel = FileChannel.open(ResourceUtils.getFile("classpath:csvdata/beers.csv").toPath(),
+                StandardOpenOption.READ)) {
+            byte[] header = CsvPartitions.header(channel);
+            List<CsvPartitions.Partition> partitions = CsvPartitions.split(channel, header.length, 7);
+
+            assertThat(partitions).hasSize(7);
+            assertThat(partitions.get(0).start()).isEqualTo(header.length);
+            assertThat(partitions.get(partitions.size() - 1).end()).isEqualTo(channel.size());
+
+            List<Integer> rows = new ArrayList<>();
+            for (CsvPartitions.Partition partition : partitions) {
+                try (Reader reader = new InputStreamReader(CsvPartitions.open(channel, header, partition),
+                        StandardCharsets.UTF_8)) {
+                    Iterator<BeerCSVRecord> records = beerCsvService.iterateCSV(reader);
+                    records.forEachRemaining(record -> rows.add(record.getRow()));
+                }
+            }
+
+            assertThat(rows).containsExactlyElementsOf(expected.stream().map(BeerCSVRecord::getRow).toList());
+        }
+    }
+}
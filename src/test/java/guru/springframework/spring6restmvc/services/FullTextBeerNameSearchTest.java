@@ -0,0 +1,40 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class FullTextBeerNameSearchTest {
+
+    BeerRepository beerRepository = mock(BeerRepository.class);
+
+    FullTextBeerNameSearch search = new FullTextBeerNameSearch(beerRepository);
+
+    @Test
+    void buildsAPrefixQueryPerWord() {
+        assertThat(FullTextBeerNameSearch.toBooleanModeQuery("hop ipa")).isEqualTo("+hop* +ipa*");
+        assertThat(FullTextBeerNameSearch.toBooleanModeQuery("+hop -ipa")).isEqualTo("+hop* +ipa*");
+        assertThat(FullTextBeerNameSearch.toBooleanModeQuery("-")).isEmpty();
+    }
+
+    @Test
+    void searchWithoutWordsKeepsTheStyle() {
+        given(beerRepository.findAllDtosByBeerNameLikeAndBeerStyle(any(), any(), any())).willReturn(Page.empty());
+        given(beerRepository.findIdsByBeerNameLikeAndBeerStyle(any(), any(), any())).willReturn(Page.empty());
+
+        search.search("-", BeerStyle.IPA, PageRequest.of(0, 25));
+        search.searchIds("-", BeerStyle.IPA, PageRequest.of(0, 25));
+
+        verify(beerRepository).findAllDtosByBeerNameLikeAndBeerStyle(eq("%-%"), eq(BeerStyle.IPA), any());
+        verify(beerRepository).findIdsByBeerNameLikeAndBeerStyle(eq("%-%"), eq(BeerStyle.IPA), any());
+    }
+}
@@ -0,0 +1,135 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.entities.InventoryReservation;
+import guru.springframework.spring6restmvc.model.BeerOrderCreateDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderDTO;
+import guru.springframework.spring6restmvc.model.BeerOrderLineDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import guru.springframework.spring6restmvc.repositories.CustomerRepository;
+import guru.springframework.spring6restmvc.repositories.InventoryReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The order load test of BeerOrderAllocationIT against the inventory ledger, plus write-behind replay
+ * and reconciliation. Flushes are triggered by the tests, the scheduled one is pushed out of the way
+ */
+@Slf4j
+@SpringBootTest(properties = {"beer.order.allocation=ledger", "beer.order.ledger.flush-interval=1h",
+        "beer.order.ledger.batch-size=100"})
+@DirtiesContext //leaves orders and sold out beers behind
+class InventoryLedgerIT {
+
+    @Autowired
+    InventoryLedger inventoryLedger;
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    InventoryReservationRepository reservationRepository;
+
+    int threads = Integer.getInteger("beer.order.threads", 32);
+    int orders = Integer.getInteger("beer.order.orders", 2000);
+
+    Beer saveBeer(String name, int quantityOnHand) {
+        return beerRepository.save(Beer.builder()
+                .beerName(name)
+                .beerStyle(BeerStyle.LAGER)
+                .upc(name)
+                .price(BigDecimal.TEN)
+                .quantityOnHand(quantityOnHand)
+                .build());
+    }
+
+    @Test
+    void testConcurrentOrdersForTheSameBeer() throws Exception {
+        int stock = orders / 4;
+        Beer hotBeer = saveBeer("Flash Sale Lager", stock);
+        UUID customerId = customerRepository.findAll().get(0).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BeerOrderDTO>> results = new ArrayList<>();
+
+        for (int i = 0; i < orders; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return beerOrderService.placeOrder(BeerOrderCreateDTO.builder()
+                        .customerId(customerId)
+                        .customerRef("flash sale")
+                        .beerOrderLines(List.of(BeerOrderLineDTO.builder()
+                                .beerId(hotBeer.getId())
+                                .orderQuantity(1)
+                                .build()))
+                        .build()).orElseThrow();
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+
+        int allocated = 0;
+        for (Future<BeerOrderDTO> result : results) {
+            allocated += result.get(2, TimeUnit.MINUTES).getBeerOrderLines().get(0).getQuantityAllocated();
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        executor.shutdown();
+
+        log.info(orders + " orders on " + threads + " threads in " + elapsedMillis + " ms, "
+                + (orders * 1000L / elapsedMillis) + " orders/s");
+
+        assertThat(allocated).isEqualTo(stock);
+        assertThat(inventoryLedger.available(hotBeer.getId())).isZero();
+
+        //Written behind: the beer row only moves on the flush
+        inventoryLedger.flush();
+        assertThat(beerRepository.findById(hotBeer.getId()).orElseThrow().getQuantityOnHand()).isZero();
+        assertThat(reservationRepository.sumQuantityByBeerId(hotBeer.getId())).isZero();
+    }
+
+    @Test
+    void testJournalIsReplayed() {
+        //As left behind by a crash: reserved and journaled, never applied to the beer
+        Beer beer = saveBeer("Crash Replay Porter", 10);
+        reservationRepository.save(InventoryReservation.builder().beerId(beer.getId()).quantity(3).build());
+
+        assertThat(inventoryLedger.available(beer.getId())).isEqualTo(7);
+
+        inventoryLedger.flush();
+        assertThat(beerRepository.findById(beer.getId()).orElseThrow().getQuantityOnHand()).isEqualTo(7);
+        assertThat(inventoryLedger.available(beer.getId())).isEqualTo(7);
+    }
+
+    @Test
+    void testRestockIsReconciled() {
+        Beer beer = saveBeer("Restocked Stout", 5);
+        assertThat(inventoryLedger.allocate(beer.getId(), 2)).isTrue();
+
+        Beer restocked = beerRepository.findById(beer.getId()).orElseThrow();
+        restocked.setQuantityOnHand(50);
+        beerRepository.save(restocked);
+
+        inventoryLedger.flush();
+        assertThat(inventoryLedger.available(beer.getId())).isEqualTo(48);
+    }
+}
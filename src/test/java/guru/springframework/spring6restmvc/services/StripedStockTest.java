@@ -0,0 +1,105 @@
+package guru.springframework.spring6restmvc.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedStockTest {
+
+    @Test
+    void testReserveAcrossStripes() {
+        StripedStock stock = new StripedStock(8, 10);
+
+        //No single stripe holds more than 2
+        assertThat(stock.tryReserve(7)).isTrue();
+        assertThat(stock.tryReserve(4)).isFalse();
+        assertThat(stock.sum()).isEqualTo(3);
+        assertThat(stock.tryReserve(3)).isTrue();
+        assertThat(stock.sum()).isZero();
+    }
+
+    @Test
+    void testAddAndNegativeDelta() {
+        StripedStock stock = new StripedStock(4, 0);
+
+        stock.add(5);
+        stock.add(-2);
+        assertThat(stock.sum()).isEqualTo(3);
+        assertThat(stock.tryReserve(3)).isTrue();
+        assertThat(stock.tryReserve(1)).isFalse();
+    }
+
+    @Test
+    void testNegativeDeltaIsNotOversold() {
+        StripedStock stock = new StripedStock(2, 10);
+
+        stock.add(-6); //a reconcile after the stock was lowered
+        assertThat(stock.sum()).isEqualTo(4);
+        assertThat(stock.tryReserve(5)).isFalse();
+        assertThat(stock.tryReserve(4)).isTrue();
+        assertThat(stock.sum()).isZero();
+    }
+
+    @Test
+    void testDeltaBeyondTheStockIsADebt() {
+        StripedStock stock = new StripedStock(4, 3);
+
+        stock.add(-5);
+        assertThat(stock.sum()).isEqualTo(-2);
+        assertThat(stock.tryReserve(1)).isFalse();
+
+        stock.add(3); //pays the debt first
+        assertThat(stock.sum()).isEqualTo(1);
+        assertThat(stock.tryReserve(2)).isFalse();
+        assertThat(stock.tryReserve(1)).isTrue();
+        assertThat(stock.sum()).isZero();
+    }
+
+    @Test
+    void testNegativeInitialStock() {
+        StripedStock stock = new StripedStock(4, -3);
+
+        assertThat(stock.sum()).isEqualTo(-3);
+        assertThat(stock.tryReserve(1)).isFalse();
+
+        stock.add(5);
+        assertThat(stock.sum()).isEqualTo(2);
+        assertThat(stock.tryReserve(2)).isTrue();
+        assertThat(stock.tryReserve(1)).isFalse();
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        StripedStock stock = new StripedStock(16, 1000);
+        AtomicLong reserved = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    int quantity = 1 + i % 3;
+                    if (stock.tryReserve(quantity)) {
+                        reserved.addAndGet(quantity);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(reserved.get() + stock.sum()).isEqualTo(1000);
+        assertThat(stock.sum()).isBetween(0L, 2L); //only requests bigger than what's left can be turned down
+    }
+}
@@ -0,0 +1,111 @@
+package guru.springframework.spring6restmvc.services;
+
+import guru.springframework.spring6restmvc.bootstrap.BootStrapData;
+import guru.springframework.spring6restmvc.entities.Beer;
+import guru.springframework.spring6restmvc.model.BeerDTO;
+import guru.springframework.spring6restmvc.model.BeerStyle;
+import guru.springframework.spring6restmvc.repositories.BeerRepository;
+import org.junit.jupiter.api.Test;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "beer.search.backend=trigram")
+@Import({BootStrapData.class, BeerCsvServiceImpl.class, BeerCsvImportServiceImpl.class, CatalogGeneration.class, TrigramBeerNameSearch.class})
+class TrigramBeerNameSearchTest {
+
+    @Autowired
+    TrigramBeerNameSearch beerNameSearch;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    //Same counts as the LIKE queries in BeerRepositoryTest
+    @Test
+    void testSearchByName() {
+        Page<BeerDTO> page = beerNameSearch.search("IPA", null, PageRequest.of(0, 25));
+
+        assertThat(page.getTotalElements()).isEqualTo(336);
+        assertThat(page.getContent().size()).isEqualTo(25);
+    }
+
+    @Test
+    void testSearchByNameAndStyle() {
+        Page<BeerDTO> page = beerNameSearch.search("ipa", BeerStyle.IPA, PageRequest.of(0, 1000));
+
+        assertThat(page.getContent().size()).isEqualTo(310);
+    }
+
+    @Test
+    void testSearchNoMatch() {
+        assertThat(beerNameSearch.search("zzzzqqq", null, PageRequest.of(0, 25)).getContent()).isEmpty();
+    }
+
+    @Test
+    void testIndexAndRemove() {
+        Beer beer = beerRepository.save(Beer.builder()
+                .beerName("Quixotic Zebra Porter")
+                .beerStyle(BeerStyle.PORTER)
+                .upc("upc")
+                .price(BigDecimal.TEN)
+                .build());
+        beerRepository.flush();
+
+        beerNameSearch.index(beer.getId(), beer.getBeerName(), beer.getBeerStyle());
+        assertThat(beerNameSearch.search("xotic zeb", null, PageRequest.of(0, 25)).getContent())
+                .extracting(BeerDTO::getId).containsExactly(beer.getId());
+
+        beerNameSearch.remove(beer.getId());
+        assertThat(beerNameSearch.search("xotic zeb", null, PageRequest.of(0, 25)).getContent()).isEmpty();
+    }
+
+    //A delete that commits while the index is loading: the load read the row before it was deleted
+    @Test
+    void testDeleteBeforeLoadIsNotIndexed() {
+        Beer beer = beerRepository.save(Beer.builder()
+                .beerName("Quixotic Yak Porter")
+                .beerStyle(BeerStyle.PORTER)
+                .upc("upc")
+                .price(BigDecimal.TEN)
+                .build());
+        beerRepository.flush();
+
+        TrigramBeerNameSearch unloaded = new TrigramBeerNameSearch(beerRepository, entityManagerFactory);
+        unloaded.remove(beer.getId()); //the row is still there for the load to read
+
+        assertThat(unloaded.searchIds("xotic yak", null, PageRequest.of(0, 25)).getContent()).isEmpty();
+    }
+
+    @Test
+    void testOrdersNamesIgnoringCase() {
+        TrigramBeerNameSearch search = new TrigramBeerNameSearch(beerRepository, entityManagerFactory);
+        search.warmUp();
+        Beer lower = beerRepository.save(Beer.builder().beerName("aardvark zymurgy ale").beerStyle(BeerStyle.ALE)
+                .upc("upc").price(BigDecimal.TEN).build());
+        Beer upper = beerRepository.save(Beer.builder().beerName("Zebra Zymurgy Ale").beerStyle(BeerStyle.ALE)
+                .upc("upc").price(BigDecimal.TEN).build());
+        beerRepository.flush();
+        search.index(lower.getId(), lower.getBeerName(), lower.getBeerStyle());
+        search.index(upper.getId(), upper.getBeerName(), upper.getBeerStyle());
+
+        assertThat(search.searchIds("zymurgy", null, PageRequest.of(0, 25)).getContent())
+                .containsExactly(lower.getId(), upper.getId());
+    }
+
+    @Test
+    void testShortNameFallsBackToLike() {
+        Page<BeerDTO> page = beerNameSearch.search("ip", BeerStyle.IPA, PageRequest.of(0, 25));
+
+        assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(310);
+    }
+}